@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <P>
+ * An <code>AsyncPrintStream</code> decouples printing threads from a slow console or log driver.
+ * Text is encoded by the calling thread under a short <code>ReentrantLock</code> protected section
+ * (see {@link UnsynchronizedPrintStream}) and the bytes are copied into a bounded lock free
+ * {@link RingBufferOutputStream}. Single writer thread drains the ring to the target stream.
+ * Output of every print call stays contiguous and calls appear in the order they acquired the lock.
+ * </P>
+ * <P>
+ * If the ring is full the {@link OverflowPolicy} decides whether printing threads wait or their output
+ * is dropped and counted, see {@link #getDropped()}. Output longer than the ring capacity may be dropped partially.
+ * The {@link #flush()} method blocks until all output printed before has reached the target.
+ * </P>
+ * <P>
+ * The {@link #installOut()} and {@link #installErr()} methods replace <code>System.out</code> or
+ * <code>System.err</code> and register shutdown hook flushing pending output synchronously
+ * on JVM shutdown. The {@link #uninstall()} method restores the original stream.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class AsyncPrintStream extends DelegatingPrintStream {
+
+    /**
+     * Behavior of printing threads when the ring is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Wait until the writer thread makes room.
+         */
+        BLOCK,
+
+        /**
+         * Drop the output and count dropped bytes.
+         */
+        DROP
+
+    }
+
+    private static final int DEFAULT_CAPACITY = 262144;
+
+    private final Sink sink;
+
+    private final PrintStream original;
+
+    private final boolean err;
+
+    private volatile Thread shutdownHook;
+
+    /**
+     * Creates an <code>AsyncPrintStream</code> with default charset, default capacity and blocking policy.
+     *
+     * @param target output stream the writer thread writes to, closed when this stream is closed
+     */
+    public AsyncPrintStream( final OutputStream target ) {
+        this( target, Charset.defaultCharset(), DEFAULT_CAPACITY, OverflowPolicy.BLOCK );
+    }
+
+    /**
+     * Creates an <code>AsyncPrintStream</code>.
+     *
+     * @param target output stream the writer thread writes to, closed when this stream is closed
+     * @param charset charset to encode text with
+     * @param capacity ring capacity in bytes, must be power of two
+     * @param policy behavior of printing threads when the ring is full
+     */
+    public AsyncPrintStream( final OutputStream target, final Charset charset, final int capacity, final OverflowPolicy policy ) {
+        this( new Sink( target, capacity, policy ), charset, null, false );
+    }
+
+    private AsyncPrintStream( final Sink sink, final Charset charset, final PrintStream original, final boolean err ) {
+        super( new UnsynchronizedPrintStream( sink, charset, false, false ) );
+        this.sink = sink;
+        this.original = original;
+        this.err = err;
+    }
+
+    /**
+     * Replaces <code>System.out</code> with an <code>AsyncPrintStream</code> with default capacity and blocking policy.
+     *
+     * @return installed stream
+     */
+    public static AsyncPrintStream installOut() {
+        return installOut( DEFAULT_CAPACITY, OverflowPolicy.BLOCK );
+    }
+
+    /**
+     * Replaces <code>System.out</code> with an <code>AsyncPrintStream</code> writing to the current <code>System.out</code>.
+     *
+     * @param capacity ring capacity in bytes, must be power of two
+     * @param policy behavior of printing threads when the ring is full
+     * @return installed stream
+     */
+    public static AsyncPrintStream installOut( final int capacity, final OverflowPolicy policy ) {
+        return install( false, capacity, policy );
+    }
+
+    /**
+     * Replaces <code>System.err</code> with an <code>AsyncPrintStream</code> with default capacity and blocking policy.
+     *
+     * @return installed stream
+     */
+    public static AsyncPrintStream installErr() {
+        return installErr( DEFAULT_CAPACITY, OverflowPolicy.BLOCK );
+    }
+
+    /**
+     * Replaces <code>System.err</code> with an <code>AsyncPrintStream</code> writing to the current <code>System.err</code>.
+     *
+     * @param capacity ring capacity in bytes, must be power of two
+     * @param policy behavior of printing threads when the ring is full
+     * @return installed stream
+     */
+    public static AsyncPrintStream installErr( final int capacity, final OverflowPolicy policy ) {
+        return install( true, capacity, policy );
+    }
+
+    /**
+     * Flushes pending output, restores the original <code>System.out</code> or <code>System.err</code>
+     * if this stream is still installed and stops the writer thread. The original stream stays open.
+     *
+     * @throws IllegalStateException if this stream was not created by an install method
+     */
+    public void uninstall() {
+        // ensure preconditions
+        if ( original == null ) {
+            throw new IllegalStateException( "Stream was not installed" );
+        }
+        // method implementation
+        synchronized ( AsyncPrintStream.class ) {
+            if ( err && System.err == this ) {
+                System.setErr( original );
+            } else if ( !err && System.out == this ) {
+                System.setOut( original );
+            }
+        }
+        final Thread hook = shutdownHook;
+        if ( hook != null ) {
+            shutdownHook = null;
+            try {
+                Runtime.getRuntime().removeShutdownHook( hook );
+            } catch ( final IllegalStateException ignored ) {
+                // shutdown in progress, the hook flushes
+            }
+        }
+        close();
+    }
+
+    /**
+     * Returns number of bytes dropped because the ring was full.
+     */
+    public long getDropped() {
+        return sink.dropped.sum();
+    }
+
+    /**
+     * Returns behavior of printing threads when the ring is full.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return sink.policy;
+    }
+
+    private static AsyncPrintStream install( final boolean err, final int capacity, final OverflowPolicy policy ) {
+        synchronized ( AsyncPrintStream.class ) {
+            final PrintStream original = err ? System.err : System.out;
+            final Charset charset = consoleCharset( err ? "stderr.encoding" : "stdout.encoding", err ? "sun.stderr.encoding" : "sun.stdout.encoding" );
+            final Sink sink = new Sink( new UnclosableOutputStream( original ), capacity, policy );
+            final AsyncPrintStream stream = new AsyncPrintStream( sink, charset, original, err );
+            final Thread hook = new Thread( stream::flush, "AsyncPrintStream shutdown flush" );
+            Runtime.getRuntime().addShutdownHook( hook );
+            stream.shutdownHook = hook;
+            if ( err ) {
+                System.setErr( stream );
+            } else {
+                System.setOut( stream );
+            }
+            return stream;
+        }
+    }
+
+    private static Charset consoleCharset( final String property, final String legacyProperty ) {
+        final String name = System.getProperty( property, System.getProperty( legacyProperty ) );
+        if ( name != null ) {
+            try {
+                return Charset.forName( name );
+            } catch ( final IllegalArgumentException ignored ) {
+                // fall back to default charset
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
+    private static Thread newWriterThread( final Runnable task ) {
+        final Thread thread = new Thread( task, "AsyncPrintStream writer" );
+        thread.setDaemon( true );
+        return thread;
+    }
+
+    /**
+     * Passes encoded bytes to the ring according to the overflow policy.
+     */
+    private static final class Sink extends OutputStream {
+
+        private final RingBufferOutputStream ring;
+
+        private final OverflowPolicy policy;
+
+        private final LongAdder dropped = new LongAdder();
+
+        private final byte[] singleByte = new byte[ 1 ];
+
+        private Sink( final OutputStream target, final int capacity, final OverflowPolicy policy ) {
+            if ( target == null ) {
+                throw new IllegalArgumentException( "OutputStream cannot be null" );
+            }
+            if ( policy == null ) {
+                throw new IllegalArgumentException( "OverflowPolicy cannot be null" );
+            }
+            ring = new RingBufferOutputStream( target, capacity, WaitStrategy.PARK, AsyncPrintStream::newWriterThread );
+            this.policy = policy;
+        }
+
+        @Override
+        public void write( final int data ) throws IOException {
+            singleByte[ 0 ] = ( byte ) data;
+            write( singleByte, 0, 1 );
+        }
+
+        @Override
+        public void write( final byte[] data, final int offset, final int length ) throws IOException {
+            if ( policy == OverflowPolicy.BLOCK ) {
+                ring.write( data, offset, length );
+            } else if ( !ring.tryWrite( data, offset, length ) ) {
+                dropped.add( length );
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ring.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            ring.close();
+        }
+
+    }
+
+    /**
+     * Flushes instead of closing the original console stream.
+     */
+    private static final class UnclosableOutputStream extends DelegatingOutputStream {
+
+        private UnclosableOutputStream( final OutputStream delegate ) {
+            super( delegate );
+        }
+
+        @Override
+        public void close() throws IOException {
+            getDelegate().flush();
+        }
+
+    }
+
+}
@@ -73,6 +73,7 @@ public final class BoundedInputStream extends DelegatingInputStream {
         final int retVal = super.read();
         if ( retVal != -1 ) {
             position++;
+            checkLimitReached();
         }
         return retVal;
     }
@@ -118,6 +119,7 @@ public final class BoundedInputStream extends DelegatingInputStream {
         final int readBytesCount = super.read( buffer, offset, len );
         if ( readBytesCount > 0 ) {
             position += readBytesCount;
+            checkLimitReached();
         }
         return readBytesCount;
     }
@@ -134,7 +136,10 @@ public final class BoundedInputStream extends DelegatingInputStream {
             return 0;
         }
         final long skippedBytesCount = super.skip( Math.min( count, remaining() ) );
-        position += skippedBytesCount;
+        if ( skippedBytesCount > 0 ) {
+            position += skippedBytesCount;
+            checkLimitReached();
+        }
         return skippedBytesCount;
     }
 
@@ -203,6 +208,12 @@ public final class BoundedInputStream extends DelegatingInputStream {
         }
     }
 
+    private void checkLimitReached() {
+        if ( remaining() == 0 ) {
+            IoEvents.limitReached( this, limit );
+        }
+    }
+
     private long remaining() {
         return limit - position;
     }
@@ -143,6 +143,7 @@ public final class BoundedOutputStream extends DelegatingOutputStream {
     }
 
     private void throwOutOfSpaceException() throws IOException {
+        IoEvents.limitReached( this, limit );
         throw new IOException( "Output stream is full: " + limit + " bytes have been written" );
     }
 
@@ -74,6 +74,7 @@ public final class BoundedReader extends DelegatingReader {
         final int retVal = super.read();
         if ( retVal != -1 ) {
             position++;
+            checkLimitReached();
         }
         return retVal;
     }
@@ -119,6 +120,7 @@ public final class BoundedReader extends DelegatingReader {
         final int readCharsCount = super.read( buffer, offset, len );
         if ( readCharsCount > 0 ) {
             position += readCharsCount;
+            checkLimitReached();
         }
         return readCharsCount;
     }
@@ -135,7 +137,10 @@ public final class BoundedReader extends DelegatingReader {
             return 0;
         }
         final long skippedCharsCount = super.skip( Math.min( count, remaining() ) );
-        position += skippedCharsCount;
+        if ( skippedCharsCount > 0 ) {
+            position += skippedCharsCount;
+            checkLimitReached();
+        }
         return skippedCharsCount;
     }
 
@@ -150,6 +155,7 @@ public final class BoundedReader extends DelegatingReader {
         final int readCharsCount = super.read( buffer );
         if ( readCharsCount > 0 ) {
             position += readCharsCount;
+            checkLimitReached();
         }
         return readCharsCount;
     }
@@ -217,6 +223,12 @@ public final class BoundedReader extends DelegatingReader {
         }
     }
 
+    private void checkLimitReached() {
+        if ( remaining() == 0 ) {
+            IoEvents.limitReached( this, limit );
+        }
+    }
+
     private long remaining() {
         return limit - position;
     }
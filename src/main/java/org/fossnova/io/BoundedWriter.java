@@ -204,10 +204,19 @@ public final class BoundedWriter extends DelegatingWriter {
         if ( length > ( data.length() - offset ) ) {
             throw new IllegalArgumentException( "length must be less or equal to free space available in the String" );
         }
-        // the implementation
-        final char[] buffer = new char[ length - offset ];
-        data.getChars( offset, length, buffer, 0 );
-        write( buffer );
+        // method implementation
+        if ( length == 0 ) {
+            return;
+        }
+        if ( remaining() == 0 ) {
+            throwOutOfSpaceException();
+        }
+        final int count = remaining() > length ? length : ( int ) remaining();
+        super.write( data, offset, count );
+        position += count;
+        if ( count != length ) {
+            throwOutOfSpaceException();
+        }
     }
 
     /**
@@ -233,6 +242,7 @@ public final class BoundedWriter extends DelegatingWriter {
     }
 
     private void throwOutOfSpaceException() throws IOException {
+        IoEvents.limitReached( this, limit );
         throw new IOException( "Writer is full: " + limit + " characters have been written" );
     }
 
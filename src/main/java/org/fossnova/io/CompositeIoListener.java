@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+/**
+ * Listener dispatching notifications to several listeners.
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+final class CompositeIoListener implements IoListener {
+
+    private final IoListener[] listeners;
+
+    CompositeIoListener( final IoListener[] listeners ) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public void onRead( final Object source, final int count ) {
+        for ( final IoListener listener : listeners ) {
+            listener.onRead( source, count );
+        }
+    }
+
+    @Override
+    public void onWrite( final Object source, final int count ) {
+        for ( final IoListener listener : listeners ) {
+            listener.onWrite( source, count );
+        }
+    }
+
+    @Override
+    public void onSkip( final Object source, final long count ) {
+        for ( final IoListener listener : listeners ) {
+            listener.onSkip( source, count );
+        }
+    }
+
+    @Override
+    public void onFlush( final Object source ) {
+        for ( final IoListener listener : listeners ) {
+            listener.onFlush( source );
+        }
+    }
+
+    @Override
+    public void onClose( final Object source ) {
+        for ( final IoListener listener : listeners ) {
+            listener.onClose( source );
+        }
+    }
+
+}
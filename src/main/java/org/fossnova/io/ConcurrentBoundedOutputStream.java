@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * A <code>ConcurrentBoundedOutputStream</code> is thread safe variant of {@link BoundedOutputStream}.
+ * Every write first reserves its range of the limit with CAS, so the limit check never takes a lock.
+ * If the specified maximum of bytes is written any further attempt to write one more byte results in IOException.
+ * </P>
+ * <P>
+ * When created over <code>OutputStream</code> the reserved ranges are written to the wrapped stream
+ * in reservation order, every writer parks until the writer of the preceding range hands over to it.
+ * When created over <code>FileChannel</code> every range is written at its own file offset,
+ * so concurrent writers never wait for each other.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class ConcurrentBoundedOutputStream extends DelegatingOutputStream {
+
+    private static final ThreadLocal<ByteBuffer> SINGLE_BYTE = ThreadLocal.withInitial( () -> ByteBuffer.allocate( 1 ) );
+
+    private final long limit;
+
+    private final FileChannel channel;
+
+    private final long channelOffset;
+
+    private final AtomicLong reserved = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final ConcurrentMap<Long, Thread> waiters = new ConcurrentHashMap<Long, Thread>();
+
+    /**
+     * Creates a <code>ConcurrentBoundedOutputStream</code> writing reserved ranges to the stream in reservation order.
+     *
+     * @param delegate output stream to be limited
+     * @param limit maximum number of bytes to be written
+     */
+    public ConcurrentBoundedOutputStream( final OutputStream delegate, final long limit ) {
+        // ensure preconditions
+        super( delegate );
+        if ( limit <= 0 ) {
+            throw new IllegalArgumentException( "Limit must be positive" );
+        }
+        // initialize
+        this.limit = limit;
+        channel = null;
+        channelOffset = 0;
+    }
+
+    /**
+     * Creates a <code>ConcurrentBoundedOutputStream</code> writing reserved ranges to the channel at their offsets.
+     *
+     * @param channel file channel to be limited
+     * @param offset file offset of the first byte written
+     * @param limit maximum number of bytes to be written
+     */
+    public ConcurrentBoundedOutputStream( final FileChannel channel, final long offset, final long limit ) {
+        // ensure preconditions
+        super( channel != null ? Channels.newOutputStream( channel ) : null );
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( limit <= 0 ) {
+            throw new IllegalArgumentException( "Limit must be positive" );
+        }
+        // initialize
+        this.limit = limit;
+        this.channel = channel;
+        channelOffset = offset;
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final long position = reserve( 1 );
+        if ( position == -1 ) {
+            throwOutOfSpaceException();
+        }
+        if ( channel != null ) {
+            final ByteBuffer buffer = SINGLE_BYTE.get();
+            buffer.clear();
+            buffer.put( ( byte ) data ).flip();
+            writeAt( buffer, position );
+        } else {
+            awaitTurn( position );
+            try {
+                super.write( data );
+            } finally {
+                complete( position + 1 );
+            }
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return;
+        }
+        final long position = reserve( length );
+        if ( position == -1 ) {
+            throwOutOfSpaceException();
+        }
+        final int count = ( int ) Math.min( length, limit - position );
+        if ( channel != null ) {
+            writeAt( ByteBuffer.wrap( data, offset, count ), position );
+        } else {
+            writeInOrder( data, offset, count, position );
+        }
+        if ( count != length ) {
+            throwOutOfSpaceException();
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#flush()} javadoc.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        super.flush();
+    }
+
+    /**
+     * See {@link java.io.OutputStream#close()} javadoc.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed.compareAndSet( false, true ) ) {
+            for ( final Thread waiter : waiters.values() ) {
+                LockSupport.unpark( waiter );
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Returns number of bytes reserved by writers so far.
+     */
+    public long getReserved() {
+        return Math.min( reserved.get(), limit );
+    }
+
+    private long reserve( final int length ) {
+        long current;
+        do {
+            current = reserved.get();
+            if ( current >= limit ) {
+                return -1;
+            }
+        } while ( !reserved.compareAndSet( current, current + Math.min( length, limit - current ) ) );
+        return current;
+    }
+
+    private void writeAt( final ByteBuffer buffer, final long position ) throws IOException {
+        long filePosition = channelOffset + position;
+        while ( buffer.hasRemaining() ) {
+            filePosition += channel.write( buffer, filePosition );
+        }
+    }
+
+    private void writeInOrder( final byte[] data, final int offset, final int count, final long position ) throws IOException {
+        awaitTurn( position );
+        try {
+            super.write( data, offset, count );
+        } finally {
+            complete( position + count );
+        }
+    }
+
+    private void awaitTurn( final long position ) {
+        if ( written.get() == position ) {
+            return;
+        }
+        // park until the writer of the preceding range hands over
+        final Long key = position;
+        waiters.put( key, Thread.currentThread() );
+        boolean interrupted = false;
+        try {
+            while ( written.get() != position ) {
+                ensureOpen();
+                LockSupport.park( this );
+                // the reserved range must be written anyway, interruption is restored afterwards
+                interrupted |= Thread.interrupted();
+            }
+        } finally {
+            waiters.remove( key );
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void complete( final long next ) {
+        written.set( next );
+        final Thread successor = waiters.get( next );
+        if ( successor != null ) {
+            LockSupport.unpark( successor );
+        }
+    }
+
+    private void throwOutOfSpaceException() throws IOException {
+        throw new IOException( "Output stream is full: " + limit + " bytes have been written" );
+    }
+
+    private void ensureOpen() {
+        if ( closed.get() ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>CountingNullOutputStream</code> discards all data written to it
+ * but counts them. It can be used to compute the size of serialized data
+ * (e.g. <code>Content-Length</code>) without buffering it.
+ * It never throws <code>IOException</code>.
+ * <p>
+ * The counter is striped, so an instance shared by many threads stays cheap.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class CountingNullOutputStream extends OutputStream {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Creates a <code>CountingNullOutputStream</code>.
+     */
+    public CountingNullOutputStream() {
+    }
+
+    /**
+     * Returns number of bytes written so far.
+     *
+     * @return byte count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Resets the byte count to zero.
+     */
+    public void reset() {
+        count.reset();
+    }
+
+    /**
+     * Counts one byte.
+     */
+    @Override
+    public void write( final int data ) {
+        count.increment();
+    }
+
+    /**
+     * Counts <B>data.length</B> bytes.
+     */
+    @Override
+    public void write( final byte[] data ) {
+        count.add( data.length );
+    }
+
+    /**
+     * Counts <B>length</B> bytes.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) {
+        count.add( length );
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void close() {
+    }
+
+}
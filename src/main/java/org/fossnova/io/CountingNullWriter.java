@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <P>
+ * A <code>CountingNullWriter</code> discards all characters written to it but counts
+ * the number of bytes they would occupy if encoded with the given <code>Charset</code>.
+ * It can be used to compute <code>Content-Length</code> of text before streaming it.
+ * It never throws <code>IOException</code>.
+ * </P>
+ * <P>
+ * UTF-8 lengths are computed arithmetically without encoding. A surrogate pair counts
+ * four bytes, even if split between two calls. An unpaired surrogate counts one byte,
+ * the length of the <code>'?'</code> replacement the encoder writes for it.
+ * Single byte charsets count one byte per character, a surrogate pair or an unpaired
+ * surrogate counts one byte for the replacement. UTF-16BE/LE count two bytes per character.
+ * Other charsets are encoded under a lock into a scratch buffer.
+ * A pair split between two calls is only recognized if no other thread writes in between.
+ * </P>
+ * <P>
+ * The counter is striped, so an instance shared by many threads stays cheap.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class CountingNullWriter extends Writer {
+
+    private static final int ONE_BYTE_LIMIT = 0x80;
+
+    private static final int TWO_BYTES_LIMIT = 0x800;
+
+    private static final int THREE_BYTES = 3;
+
+    private static final int SCRATCH_SIZE = 1024;
+
+    private static final String NULL = "null";
+
+    private final LongAdder count = new LongAdder();
+
+    private final Charset charset;
+
+    private final boolean utf8;
+
+    private final int bytesPerChar;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer scratch;
+
+    private final CharBuffer pending;
+
+    private volatile boolean afterHighSurrogate;
+
+    /**
+     * Creates a <code>CountingNullWriter</code> counting UTF-8 bytes.
+     */
+    public CountingNullWriter() {
+        this( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Creates a <code>CountingNullWriter</code>.
+     *
+     * @param charset charset the characters would be encoded with
+     */
+    public CountingNullWriter( final Charset charset ) {
+        // ensure preconditions
+        if ( charset == null ) {
+            throw new IllegalArgumentException( "Charset cannot be null" );
+        }
+        // initialize
+        this.charset = charset;
+        final CharsetEncoder charsetEncoder = charset.newEncoder();
+        utf8 = StandardCharsets.UTF_8.equals( charset );
+        if ( utf8 ) {
+            bytesPerChar = 0;
+        } else if ( StandardCharsets.UTF_16BE.equals( charset ) || StandardCharsets.UTF_16LE.equals( charset ) ) {
+            bytesPerChar = 2;
+        } else if ( charsetEncoder.maxBytesPerChar() == 1 ) {
+            bytesPerChar = 1;
+        } else {
+            bytesPerChar = 0;
+        }
+        if ( utf8 || bytesPerChar > 0 ) {
+            encoder = null;
+            scratch = null;
+            pending = null;
+        } else {
+            encoder = charsetEncoder.onMalformedInput( CodingErrorAction.REPLACE ).onUnmappableCharacter( CodingErrorAction.REPLACE );
+            scratch = ByteBuffer.allocate( SCRATCH_SIZE );
+            pending = CharBuffer.allocate( 2 );
+        }
+    }
+
+    /**
+     * Returns charset the characters are measured with.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns number of bytes the characters written so far would be encoded to.
+     * For charsets with encoder state (e.g. trailing incomplete input) the count is final after {@link #close()}.
+     *
+     * @return byte count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Resets the byte count to zero and discards encoder state.
+     */
+    public void reset() {
+        if ( encoder != null ) {
+            synchronized ( encoder ) {
+                encoder.reset();
+                pending.clear();
+                count.reset();
+            }
+        } else {
+            afterHighSurrogate = false;
+            count.reset();
+        }
+    }
+
+    /**
+     * Counts encoded length of one character.
+     */
+    @Override
+    public void write( final int data ) {
+        if ( utf8 || bytesPerChar == 1 ) {
+            final char c = ( char ) data;
+            count.add( length( c, afterHighSurrogate ) );
+            afterHighSurrogate = Character.isHighSurrogate( c );
+        } else if ( bytesPerChar > 0 ) {
+            count.add( bytesPerChar );
+        } else {
+            encode( CharBuffer.wrap( new char[] { ( char ) data } ) );
+        }
+    }
+
+    /**
+     * Counts encoded length of all characters.
+     */
+    @Override
+    public void write( final char[] data ) {
+        write( data, 0, data.length );
+    }
+
+    /**
+     * Counts encoded length of <B>length</B> characters.
+     */
+    @Override
+    public void write( final char[] data, final int offset, final int length ) {
+        if ( utf8 || bytesPerChar == 1 ) {
+            boolean afterHigh = afterHighSurrogate;
+            long bytes = 0;
+            for ( int i = offset; i < offset + length; i++ ) {
+                final char c = data[ i ];
+                bytes += length( c, afterHigh );
+                afterHigh = Character.isHighSurrogate( c );
+            }
+            afterHighSurrogate = afterHigh;
+            count.add( bytes );
+        } else if ( bytesPerChar > 0 ) {
+            count.add( ( long ) bytesPerChar * length );
+        } else {
+            encode( CharBuffer.wrap( data, offset, length ) );
+        }
+    }
+
+    /**
+     * Counts encoded length of all characters.
+     */
+    @Override
+    public void write( final String data ) {
+        count( data, 0, data.length() );
+    }
+
+    /**
+     * Counts encoded length of <B>length</B> characters.
+     */
+    @Override
+    public void write( final String data, final int offset, final int length ) {
+        count( data, offset, offset + length );
+    }
+
+    /**
+     * Counts encoded length of all characters.
+     */
+    @Override
+    public Writer append( final CharSequence data ) {
+        final CharSequence chars = data != null ? data : NULL;
+        count( chars, 0, chars.length() );
+        return this;
+    }
+
+    /**
+     * Counts encoded length of characters in given range.
+     */
+    @Override
+    public Writer append( final CharSequence data, final int start, final int end ) {
+        count( data != null ? data : NULL, start, end );
+        return this;
+    }
+
+    /**
+     * Counts encoded length of one character.
+     */
+    @Override
+    public Writer append( final char data ) {
+        write( data );
+        return this;
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Completes encoding of incomplete trailing input, if any.
+     */
+    @Override
+    public void close() {
+        if ( encoder == null ) {
+            return;
+        }
+        synchronized ( encoder ) {
+            pending.flip();
+            scratch.clear();
+            encoder.encode( pending, scratch, true );
+            encoder.flush( scratch );
+            count.add( scratch.position() );
+            encoder.reset();
+            pending.clear();
+        }
+    }
+
+    private void count( final CharSequence data, final int start, final int end ) {
+        if ( start < 0 || start > end || end > data.length() ) {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( utf8 || bytesPerChar == 1 ) {
+            boolean afterHigh = afterHighSurrogate;
+            long bytes = 0;
+            for ( int i = start; i < end; i++ ) {
+                final char c = data.charAt( i );
+                bytes += length( c, afterHigh );
+                afterHigh = Character.isHighSurrogate( c );
+            }
+            afterHighSurrogate = afterHigh;
+            count.add( bytes );
+        } else if ( bytesPerChar > 0 ) {
+            count.add( ( long ) bytesPerChar * ( end - start ) );
+        } else {
+            encode( CharBuffer.wrap( data, start, end ) );
+        }
+    }
+
+    private int length( final char c, final boolean afterHigh ) {
+        return utf8 ? utf8Length( c, afterHigh ) : singleByteLength( c, afterHigh );
+    }
+
+    private static int utf8Length( final char c, final boolean afterHigh ) {
+        if ( c < ONE_BYTE_LIMIT ) {
+            return 1;
+        }
+        if ( c < TWO_BYTES_LIMIT ) {
+            return 2;
+        }
+        if ( Character.isHighSurrogate( c ) ) {
+            // counted as unpaired replacement until the low surrogate arrives
+            return 1;
+        }
+        if ( Character.isLowSurrogate( c ) ) {
+            // completes the four bytes of the pair, or is unpaired replacement
+            return afterHigh ? THREE_BYTES : 1;
+        }
+        return THREE_BYTES;
+    }
+
+    private static int singleByteLength( final char c, final boolean afterHigh ) {
+        // surrogate pair is replaced by single byte
+        return Character.isLowSurrogate( c ) && afterHigh ? 0 : 1;
+    }
+
+    private void encode( final CharBuffer input ) {
+        synchronized ( encoder ) {
+            while ( pending.position() > 0 && input.hasRemaining() ) {
+                // complete character split between two calls
+                pending.put( input.get() );
+                pending.flip();
+                encodeChunk( pending );
+                pending.compact();
+            }
+            encodeChunk( input );
+            if ( input.hasRemaining() ) {
+                pending.put( input );
+            }
+        }
+    }
+
+    private void encodeChunk( final CharBuffer input ) {
+        CoderResult result;
+        do {
+            scratch.clear();
+            result = encoder.encode( input, scratch, false );
+            count.add( scratch.position() );
+        } while ( result.isOverflow() );
+    }
+
+}
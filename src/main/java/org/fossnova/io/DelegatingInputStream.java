@@ -33,6 +33,12 @@ import java.io.InputStream;
  * This class represents the alternative to <code>java.io.FilterInputStream</code>. 
  * </p>
  * <p>
+ * Every read, skip and close is reported to the {@link IoListener} passed
+ * to the constructor. The listener is held in a final field so each stream
+ * may be observed differently; streams created without one share the static
+ * final {@link IoListener#NONE} and skip the notification on a reference check.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -42,6 +48,8 @@ public class DelegatingInputStream extends InputStream {
 
     private final InputStream delegate;
 
+    private final IoListener listener;
+
     /**
      * Creates a <code>DelegatingInputStream</code> that wraps passed input stream.
      *
@@ -49,10 +57,26 @@ public class DelegatingInputStream extends InputStream {
      * @throws <code>IllegalArgumentException</code> if parameter is null
      */
     public DelegatingInputStream( final InputStream delegate ) {
+        this( delegate, IoListener.NONE );
+    }
+
+    /**
+     * Creates a <code>DelegatingInputStream</code> that wraps passed input stream and notifies
+     * passed listener about the traffic.
+     *
+     * @param delegate the input stream to be wrapped
+     * @param listener the listener to be notified
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public DelegatingInputStream( final InputStream delegate, final IoListener listener ) {
         if ( delegate == null ) {
             throw new IllegalArgumentException( "InputStream cannot be null" );
         }
+        if ( listener == null ) {
+            throw new IllegalArgumentException( "IoListener cannot be null" );
+        }
         this.delegate = delegate;
+        this.listener = listener;
     }
 
     /**
@@ -62,12 +86,23 @@ public class DelegatingInputStream extends InputStream {
         return delegate;
     }
 
+    /**
+     * Returns listener notified about the traffic.
+     */
+    protected IoListener getListener() {
+        return listener;
+    }
+
     /**
      * Delegates the call to the wrapped input stream.
      */
     @Override
     public int read() throws IOException {
-        return getDelegate().read();
+        final int retVal = getDelegate().read();
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal < 0 ? -1 : 1 );
+        }
+        return retVal;
     }
 
     /**
@@ -75,7 +110,15 @@ public class DelegatingInputStream extends InputStream {
      */
     @Override
     public int read( final byte[] buffer ) throws IOException {
-        return getDelegate().read( buffer );
+        final IoEvents.ReadEvent event = IoEvents.beginRead();
+        final int retVal = getDelegate().read( buffer );
+        if ( event != null ) {
+            event.end( this, retVal );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -83,7 +126,15 @@ public class DelegatingInputStream extends InputStream {
      */
     @Override
     public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
-        return getDelegate().read( buffer, offset, length );
+        final IoEvents.ReadEvent event = IoEvents.beginRead();
+        final int retVal = getDelegate().read( buffer, offset, length );
+        if ( event != null ) {
+            event.end( this, retVal );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -91,7 +142,14 @@ public class DelegatingInputStream extends InputStream {
      */
     @Override
     public void close() throws IOException {
+        final IoEvents.CloseEvent event = IoEvents.beginClose();
         getDelegate().close();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onClose( this );
+        }
     }
 
     /**
@@ -99,7 +157,11 @@ public class DelegatingInputStream extends InputStream {
      */
     @Override
     public long skip( final long count ) throws IOException {
-        return getDelegate().skip( count );
+        final long retVal = getDelegate().skip( count );
+        if ( listener != IoListener.NONE ) {
+            listener.onSkip( this, retVal );
+        }
+        return retVal;
     }
 
     /**
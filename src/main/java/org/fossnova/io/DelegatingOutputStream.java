@@ -33,6 +33,11 @@ import java.io.OutputStream;
  * This class represents the alternative to <code>java.io.FilterOutputStream</code>. 
  * </p>
  * <p>
+ * Every write, flush and close is reported to the {@link IoListener} passed
+ * to the constructor. Streams created without a listener share
+ * {@link IoListener#NONE} and bypass it, so unobserved writes pay a single comparison.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -42,6 +47,8 @@ public class DelegatingOutputStream extends OutputStream {
 
     private final OutputStream delegate;
 
+    private final IoListener listener;
+
     /**
      * Creates a <code>DelegatingOutputStream</code> that wraps passed output stream.
      *
@@ -49,10 +56,26 @@ public class DelegatingOutputStream extends OutputStream {
      * @throws <code>IllegalArgumentException</code> if parameter is null
      */
     public DelegatingOutputStream( final OutputStream delegate ) {
+        this( delegate, IoListener.NONE );
+    }
+
+    /**
+     * Creates a <code>DelegatingOutputStream</code> that wraps passed output stream and notifies
+     * passed listener about the traffic.
+     *
+     * @param delegate the output stream to be wrapped
+     * @param listener the listener to be notified
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public DelegatingOutputStream( final OutputStream delegate, final IoListener listener ) {
         if ( delegate == null ) {
             throw new IllegalArgumentException( "OutputStream cannot be null" );
         }
+        if ( listener == null ) {
+            throw new IllegalArgumentException( "IoListener cannot be null" );
+        }
         this.delegate = delegate;
+        this.listener = listener;
     }
 
     /**
@@ -62,12 +85,22 @@ public class DelegatingOutputStream extends OutputStream {
         return delegate;
     }
 
+    /**
+     * Returns listener notified about the traffic.
+     */
+    protected IoListener getListener() {
+        return listener;
+    }
+
     /**
      * Delegates the call to the wrapped output stream.
      */
     @Override
     public void write( final int data ) throws IOException {
         getDelegate().write( data );
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, 1 );
+        }
     }
 
     /**
@@ -75,7 +108,14 @@ public class DelegatingOutputStream extends OutputStream {
      */
     @Override
     public void write( final byte[] data ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data );
+        if ( event != null ) {
+            event.end( this, data.length );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, data.length );
+        }
     }
 
     /**
@@ -83,7 +123,14 @@ public class DelegatingOutputStream extends OutputStream {
      */
     @Override
     public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data, offset, length );
+        if ( event != null ) {
+            event.end( this, length );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, length );
+        }
     }
 
     /**
@@ -91,7 +138,14 @@ public class DelegatingOutputStream extends OutputStream {
      */
     @Override
     public void flush() throws IOException {
+        final IoEvents.FlushEvent event = IoEvents.beginFlush();
         getDelegate().flush();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onFlush( this );
+        }
     }
 
     /**
@@ -99,7 +153,14 @@ public class DelegatingOutputStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
+        final IoEvents.CloseEvent event = IoEvents.beginClose();
         getDelegate().close();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onClose( this );
+        }
     }
 
 }
@@ -31,6 +31,10 @@ import java.util.Locale;
  * is always obtained via {@link #getDelegate()} method.
  * </p>
  * <p>
+ * Like every <code>PrintStream</code> it allocates an unused encoder and buffered writer
+ * on construction. Use {@link RebindablePrintStream} to avoid creating a wrapper per use.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -66,7 +70,11 @@ public class DelegatingPrintStream extends PrintStream {
      */
     @Override
     public void flush() {
+        final IoEvents.FlushEvent event = IoEvents.beginFlush();
         getDelegate().flush();
+        if ( event != null ) {
+            event.end( this );
+        }
     }
 
     /**
@@ -74,7 +82,11 @@ public class DelegatingPrintStream extends PrintStream {
      */
     @Override
     public void close() {
+        final IoEvents.CloseEvent event = IoEvents.beginClose();
         getDelegate().close();
+        if ( event != null ) {
+            event.end( this );
+        }
     }
 
     /**
@@ -98,7 +110,11 @@ public class DelegatingPrintStream extends PrintStream {
      */
     @Override
     public void write( final byte[] data, final int offset, final int length ) {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data, offset, length );
+        if ( event != null ) {
+            event.end( this, length );
+        }
     }
 
     /**
@@ -321,7 +337,11 @@ public class DelegatingPrintStream extends PrintStream {
      */
     @Override
     public void write( final byte[] data ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data );
+        if ( event != null ) {
+            event.end( this, data.length );
+        }
     }
 
 }
@@ -34,6 +34,11 @@ import java.nio.CharBuffer;
  * This class represents the alternative to <code>java.io.FilterReader</code>. 
  * </p>
  * <p>
+ * Every read (including reads into a <code>CharBuffer</code>), skip and close
+ * is reported to the {@link IoListener} passed to the constructor. Readers
+ * created without a listener share {@link IoListener#NONE} and never call it.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -43,6 +48,8 @@ public class DelegatingReader extends Reader {
 
     private final Reader delegate;
 
+    private final IoListener listener;
+
     /**
      * Creates a <code>DelegatingReader</code> that wraps passed reader.
      *
@@ -50,10 +57,26 @@ public class DelegatingReader extends Reader {
      * @throws <code>IllegalArgumentException</code> if parameter is null
      */
     public DelegatingReader( final Reader delegate ) {
+        this( delegate, IoListener.NONE );
+    }
+
+    /**
+     * Creates a <code>DelegatingReader</code> that wraps passed reader and notifies
+     * passed listener about the traffic.
+     *
+     * @param delegate the reader to be wrapped
+     * @param listener the listener to be notified
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public DelegatingReader( final Reader delegate, final IoListener listener ) {
         if ( delegate == null ) {
             throw new IllegalArgumentException( "Reader cannot be null" );
         }
+        if ( listener == null ) {
+            throw new IllegalArgumentException( "IoListener cannot be null" );
+        }
         this.delegate = delegate;
+        this.listener = listener;
     }
 
     /**
@@ -63,12 +86,27 @@ public class DelegatingReader extends Reader {
         return delegate;
     }
 
+    /**
+     * Returns listener notified about the traffic.
+     */
+    protected IoListener getListener() {
+        return listener;
+    }
+
     /**
      * Delegates the call to the wrapped reader.
      */
     @Override
     public int read( final CharBuffer buffer ) throws IOException {
-        return getDelegate().read( buffer );
+        final IoEvents.ReadEvent event = IoEvents.beginRead();
+        final int retVal = getDelegate().read( buffer );
+        if ( event != null ) {
+            event.end( this, retVal );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -76,7 +114,11 @@ public class DelegatingReader extends Reader {
      */
     @Override
     public int read() throws IOException {
-        return getDelegate().read();
+        final int retVal = getDelegate().read();
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal < 0 ? -1 : 1 );
+        }
+        return retVal;
     }
 
     /**
@@ -84,7 +126,15 @@ public class DelegatingReader extends Reader {
      */
     @Override
     public int read( final char[] buffer ) throws IOException {
-        return getDelegate().read( buffer );
+        final IoEvents.ReadEvent event = IoEvents.beginRead();
+        final int retVal = getDelegate().read( buffer );
+        if ( event != null ) {
+            event.end( this, retVal );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -92,7 +142,15 @@ public class DelegatingReader extends Reader {
      */
     @Override
     public int read( final char[] buffer, final int offset, final int length ) throws IOException {
-        return getDelegate().read( buffer, offset, length );
+        final IoEvents.ReadEvent event = IoEvents.beginRead();
+        final int retVal = getDelegate().read( buffer, offset, length );
+        if ( event != null ) {
+            event.end( this, retVal );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onRead( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -100,7 +158,14 @@ public class DelegatingReader extends Reader {
      */
     @Override
     public void close() throws IOException {
+        final IoEvents.CloseEvent event = IoEvents.beginClose();
         getDelegate().close();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onClose( this );
+        }
     }
 
     /**
@@ -108,7 +173,11 @@ public class DelegatingReader extends Reader {
      */
     @Override
     public long skip( final long count ) throws IOException {
-        return getDelegate().skip( count );
+        final long retVal = getDelegate().skip( count );
+        if ( listener != IoListener.NONE ) {
+            listener.onSkip( this, retVal );
+        }
+        return retVal;
     }
 
     /**
@@ -33,6 +33,11 @@ import java.io.Writer;
  * This class represents the alternative to <code>java.io.FilterWriter</code>. 
  * </p>
  * <p>
+ * Every write and append, as well as flush and close, is reported to the
+ * {@link IoListener} passed to the constructor. Counts are in characters.
+ * Writers created without a listener share {@link IoListener#NONE} and never call it.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -40,8 +45,12 @@ import java.io.Writer;
  */
 public class DelegatingWriter extends Writer {
 
+    private static final int NULL_LENGTH = "null".length();
+
     private final Writer delegate;
 
+    private final IoListener listener;
+
     /**
      * Creates a <code>DelegatingWriter</code> that wraps passed writer.
      *
@@ -49,10 +58,26 @@ public class DelegatingWriter extends Writer {
      * @throws <code>IllegalArgumentException</code> if parameter is null
      */
     public DelegatingWriter( final Writer delegate ) {
+        this( delegate, IoListener.NONE );
+    }
+
+    /**
+     * Creates a <code>DelegatingWriter</code> that wraps passed writer and notifies
+     * passed listener about the traffic.
+     *
+     * @param delegate the writer to be wrapped
+     * @param listener the listener to be notified
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public DelegatingWriter( final Writer delegate, final IoListener listener ) {
         if ( delegate == null ) {
             throw new IllegalArgumentException( "Writer cannot be null" );
         }
+        if ( listener == null ) {
+            throw new IllegalArgumentException( "IoListener cannot be null" );
+        }
         this.delegate = delegate;
+        this.listener = listener;
     }
 
     /**
@@ -62,12 +87,22 @@ public class DelegatingWriter extends Writer {
         return delegate;
     }
 
+    /**
+     * Returns listener notified about the traffic.
+     */
+    protected IoListener getListener() {
+        return listener;
+    }
+
     /**
      * Delegates the call to the wrapped writer.
      */
     @Override
     public void write( final int data ) throws IOException {
         getDelegate().write( data );
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, 1 );
+        }
     }
 
     /**
@@ -75,7 +110,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void write( final char[] data ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data );
+        if ( event != null ) {
+            event.end( this, data.length );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, data.length );
+        }
     }
 
     /**
@@ -83,7 +125,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void write( final char[] data, final int offset, final int length ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data, offset, length );
+        if ( event != null ) {
+            event.end( this, length );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, length );
+        }
     }
 
     /**
@@ -91,7 +140,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void write( final String data ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data );
+        if ( event != null ) {
+            event.end( this, data.length() );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, data.length() );
+        }
     }
 
     /**
@@ -99,7 +155,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void write( final String data, final int offset, final int length ) throws IOException {
+        final IoEvents.WriteEvent event = IoEvents.beginWrite();
         getDelegate().write( data, offset, length );
+        if ( event != null ) {
+            event.end( this, length );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, length );
+        }
     }
 
     /**
@@ -108,6 +171,9 @@ public class DelegatingWriter extends Writer {
     @Override
     public Writer append( final CharSequence data ) throws IOException {
         getDelegate().append( data );
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, data == null ? NULL_LENGTH : data.length() );
+        }
         return this;
     }
 
@@ -117,6 +183,9 @@ public class DelegatingWriter extends Writer {
     @Override
     public Writer append( final CharSequence data, final int start, final int end ) throws IOException {
         getDelegate().append( data, start, end );
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, end - start );
+        }
         return this;
     }
 
@@ -126,6 +195,9 @@ public class DelegatingWriter extends Writer {
     @Override
     public Writer append( final char data ) throws IOException {
         getDelegate().append( data );
+        if ( listener != IoListener.NONE ) {
+            listener.onWrite( this, 1 );
+        }
         return this;
     }
 
@@ -134,7 +206,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void flush() throws IOException {
+        final IoEvents.FlushEvent event = IoEvents.beginFlush();
         getDelegate().flush();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onFlush( this );
+        }
     }
 
     /**
@@ -142,7 +221,14 @@ public class DelegatingWriter extends Writer {
      */
     @Override
     public void close() throws IOException {
+        final IoEvents.CloseEvent event = IoEvents.beginClose();
         getDelegate().close();
+        if ( event != null ) {
+            event.end( this );
+        }
+        if ( listener != IoListener.NONE ) {
+            listener.onClose( this );
+        }
     }
 
 }
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>
+ * A <code>DirectIoOutputStream</code> writes file bypassing the operating system page cache,
+ * so bulk sequential writes (e.g. multi gigabyte exports) don't evict data cached for other processes.
+ * The file is opened with <code>com.sun.nio.file.ExtendedOpenOption.DIRECT</code> and written from direct buffers
+ * aligned to the block size of its file store, in multiples of that block size.
+ * </P>
+ * <P>
+ * The {@link #flush()} method writes only whole blocks, the unaligned tail stays buffered.
+ * The {@link #close()} method writes the tail padded to whole block and truncates the file to the number
+ * of bytes written. If double buffering is enabled, filled buffer is written by background task
+ * while the caller fills the other one. The background task is submitted to the <code>Executor</code>
+ * passed to the constructor or runs in its own daemon thread if no executor is specified.
+ * </P>
+ * <P>
+ * Opening fails with <code>UnsupportedOperationException</code> if the runtime doesn't provide direct I/O
+ * and with <code>IOException</code> if the file system doesn't support it.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class DirectIoOutputStream extends DelegatingOutputStream {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1048576;
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final OpenOption DIRECT = directOption();
+
+    private static final long POLL_MILLIS = 100L;
+
+    private static final ByteBuffer STOP = ByteBuffer.allocate( 0 );
+
+    private final FileChannel channel;
+
+    private final int blockSize;
+
+    private final BlockingQueue<ByteBuffer> free;
+
+    private final BlockingQueue<ByteBuffer> filled;
+
+    private final CountDownLatch finished;
+
+    private ByteBuffer current;
+
+    private long size;
+
+    private boolean closed;
+
+    private volatile IOException failure;
+
+    /**
+     * Creates a <code>DirectIoOutputStream</code> with one 1MB buffer. Existing file is truncated.
+     *
+     * @param path file to be written
+     * @throws IOException if file cannot be opened for direct I/O
+     */
+    public DirectIoOutputStream( final Path path ) throws IOException {
+        this( path, DEFAULT_BUFFER_SIZE, false, null );
+    }
+
+    /**
+     * Creates a <code>DirectIoOutputStream</code>. Existing file is truncated.
+     *
+     * @param path file to be written
+     * @param bufferSize size of buffer, rounded up to multiple of the block size
+     * @param doubleBuffered whether filled buffer is written in the background while the caller fills the other one
+     * @param executor executor running background task or <code>null</code> to use own daemon thread, ignored if not double buffered
+     * @throws IOException if file cannot be opened for direct I/O
+     */
+    public DirectIoOutputStream( final Path path, final int bufferSize, final boolean doubleBuffered, final Executor executor ) throws IOException {
+        this( path, open( path, bufferSize ), bufferSize, doubleBuffered, executor );
+    }
+
+    private DirectIoOutputStream( final Path path, final FileChannel channel, final int bufferSize, final boolean doubleBuffered, final Executor executor ) throws IOException {
+        super( Channels.newOutputStream( channel ) );
+        this.channel = channel;
+        try {
+            blockSize = blockSize( path );
+        } catch ( final IOException e ) {
+            channel.close();
+            throw e;
+        }
+        final int capacity = ( ( bufferSize - 1 ) / blockSize + 1 ) * blockSize;
+        current = allocate( capacity );
+        if ( doubleBuffered ) {
+            free = new ArrayBlockingQueue<ByteBuffer>( 2 );
+            filled = new ArrayBlockingQueue<ByteBuffer>( 2 );
+            finished = new CountDownLatch( 1 );
+            free.add( allocate( capacity ) );
+            final Runnable task = new Writer();
+            if ( executor != null ) {
+                executor.execute( task );
+            } else {
+                final Thread thread = new Thread( task, "DirectIoOutputStream writer" );
+                thread.setDaemon( true );
+                thread.start();
+            }
+        } else {
+            free = null;
+            filled = null;
+            finished = null;
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( !current.hasRemaining() ) {
+            submit();
+        }
+        current.put( ( byte ) data );
+        size++;
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        int position = offset;
+        final int end = offset + length;
+        while ( position < end ) {
+            if ( !current.hasRemaining() ) {
+                submit();
+            }
+            final int count = Math.min( end - position, current.remaining() );
+            current.put( data, position, count );
+            position += count;
+        }
+        size += length;
+    }
+
+    /**
+     * Writes all buffered whole blocks. The unaligned tail stays buffered until more data are written or the stream is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        awaitIdle();
+        final int tail = current.position() % blockSize;
+        current.flip();
+        current.limit( current.limit() - tail );
+        writeFully( current );
+        current.limit( current.position() + tail );
+        current.compact();
+    }
+
+    /**
+     * Returns block size the writes are aligned to.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns number of bytes written so far.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Writes buffered data including the tail padded to whole block, truncates the file to the number of bytes written,
+     * stops background task and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        try {
+            awaitIdle();
+            final int length = current.position();
+            if ( length > 0 ) {
+                current.flip();
+                current.limit( ( ( length - 1 ) / blockSize + 1 ) * blockSize );
+                writeFully( current );
+            }
+            channel.truncate( size );
+        } finally {
+            try {
+                stopWriter();
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+    private void submit() throws IOException {
+        current.flip();
+        if ( filled == null ) {
+            writeFully( current );
+            current.clear();
+            return;
+        }
+        filled.add( current );
+        current = take();
+        current.clear();
+    }
+
+    private void awaitIdle() throws IOException {
+        if ( free != null ) {
+            free.add( take() );
+        }
+    }
+
+    private ByteBuffer take() throws IOException {
+        try {
+            ByteBuffer retVal = free.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            while ( retVal == null ) {
+                // background task may have terminated
+                checkFailure();
+                retVal = free.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            }
+            checkFailure();
+            return retVal;
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for free buffer" );
+        }
+    }
+
+    private void stopWriter() throws IOException {
+        if ( filled != null ) {
+            filled.add( STOP );
+            try {
+                finished.await();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for writer task" );
+            }
+        }
+    }
+
+    private void writeFully( final ByteBuffer buffer ) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            channel.write( buffer );
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if ( e != null ) {
+            throw new IOException( "Direct write failed", e );
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    private ByteBuffer allocate( final int capacity ) {
+        return ByteBuffer.allocateDirect( capacity + blockSize - 1 ).alignedSlice( blockSize );
+    }
+
+    private static FileChannel open( final Path path, final int bufferSize ) throws IOException {
+        // ensure preconditions
+        if ( path == null ) {
+            throw new IllegalArgumentException( "Path cannot be null" );
+        }
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "Buffer size must be positive" );
+        }
+        if ( DIRECT == null ) {
+            throw new UnsupportedOperationException( "Direct I/O is not supported by the runtime" );
+        }
+        // method implementation
+        return FileChannel.open( path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, DIRECT );
+    }
+
+    private static int blockSize( final Path path ) throws IOException {
+        try {
+            final long retVal = Files.getFileStore( path ).getBlockSize();
+            return retVal > 0 && retVal <= DEFAULT_BUFFER_SIZE ? ( int ) retVal : DEFAULT_BLOCK_SIZE;
+        } catch ( final UnsupportedOperationException e ) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+    }
+
+    private static OpenOption directOption() {
+        // looked up reflectively, com.sun packages are not imported
+        try {
+            for ( final Object option : Class.forName( "com.sun.nio.file.ExtendedOpenOption" ).getEnumConstants() ) {
+                if ( "DIRECT".equals( ( ( Enum<?> ) option ).name() ) ) {
+                    return ( OpenOption ) option;
+                }
+            }
+        } catch ( final ClassNotFoundException e ) {
+            // not available on this runtime
+        }
+        return null;
+    }
+
+    private final class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer buffer = filled.take();
+                while ( buffer != STOP ) {
+                    process( buffer );
+                    free.add( buffer );
+                    buffer = filled.take();
+                }
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException( "Writer task interrupted" );
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        private void process( final ByteBuffer buffer ) {
+            if ( failure == null ) {
+                try {
+                    writeFully( buffer );
+                } catch ( final IOException e ) {
+                    failure = e;
+                } catch ( final Throwable t ) {
+                    // unchecked failure must not kill the task, the caller would wait for free buffer forever
+                    failure = new IOException( "Writer task failed unexpectedly", t );
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs <B>flush</B> or <B>close</B> on many delegates concurrently using the given executor.
+ * The caller waits until all the calls complete. A single failure is rethrown, unchecked exceptions
+ * and errors as they are. Several distinct failures are attached as suppressed exceptions to a new
+ * <code>IOException</code>, because delegates may throw shared exception instances that must not be modified.
+ * Calls rejected by the executor run in the caller thread.
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+final class FanOut {
+
+    private FanOut() {
+    }
+
+    static <T extends Closeable & Flushable> void flush( final Executor executor, final T[] delegates ) throws IOException {
+        run( executor, delegates, false );
+    }
+
+    static <T extends Closeable & Flushable> void close( final Executor executor, final T[] delegates ) throws IOException {
+        run( executor, delegates, true );
+    }
+
+    private static <T extends Closeable & Flushable> void run( final Executor executor, final T[] delegates, final boolean close ) throws IOException {
+        final CountDownLatch latch = new CountDownLatch( delegates.length );
+        final Call<?>[] calls = new Call<?>[ delegates.length ];
+        for ( int i = 0; i < delegates.length; i++ ) {
+            calls[ i ] = new Call<T>( delegates[ i ], close, latch );
+            try {
+                executor.execute( calls[ i ] );
+            } catch ( final RejectedExecutionException e ) {
+                // saturated or shut down executor, the delegate still has to be flushed or closed
+                calls[ i ].run();
+            }
+        }
+        try {
+            latch.await();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for delegates" );
+        }
+        Throwable failure = null;
+        IOException failures = null;
+        for ( int i = 0; i < calls.length; i++ ) {
+            if ( calls[ i ].failure == null || reported( calls, i ) ) {
+                continue;
+            }
+            if ( failure == null ) {
+                failure = calls[ i ].failure;
+            } else {
+                if ( failures == null ) {
+                    failures = new IOException( "Delegates failed" );
+                    failures.addSuppressed( failure );
+                }
+                failures.addSuppressed( calls[ i ].failure );
+            }
+        }
+        if ( failures != null ) {
+            throw failures;
+        }
+        if ( failure != null ) {
+            throw rethrow( failure );
+        }
+    }
+
+    private static boolean reported( final Call<?>[] calls, final int index ) {
+        // the same instance thrown by several delegates is reported once
+        for ( int i = 0; i < index; i++ ) {
+            if ( calls[ i ].failure == calls[ index ].failure ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IOException rethrow( final Throwable failure ) {
+        if ( failure instanceof RuntimeException ) {
+            throw ( RuntimeException ) failure;
+        }
+        if ( failure instanceof Error ) {
+            throw ( Error ) failure;
+        }
+        if ( failure instanceof IOException ) {
+            return ( IOException ) failure;
+        }
+        return new IOException( "Delegate failed", failure );
+    }
+
+    private static final class Call<T extends Closeable & Flushable> implements Runnable {
+
+        private final T delegate;
+
+        private final boolean close;
+
+        private final CountDownLatch latch;
+
+        private Throwable failure;
+
+        private Call( final T delegate, final boolean close, final CountDownLatch latch ) {
+            this.delegate = delegate;
+            this.close = close;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if ( close ) {
+                    delegate.close();
+                } else {
+                    delegate.flush();
+                }
+            } catch ( final Throwable t ) {
+                // unchecked failures are reported to the caller too, not lost on the executor thread
+                failure = t;
+            } finally {
+                latch.countDown();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * A <code>FaultInjector</code> decides which faults the <code>Faulty*</code> wrappers inject into calls
+ * passing through them. Supported faults:
+ * </P>
+ * <ul>
+ * <li>added latency per call, fixed or uniformly distributed</li>
+ * <li>latency spikes with given probability, to exercise tail latency handling</li>
+ * <li>short reads returning fewer bytes than requested</li>
+ * <li>one time stall after given number of bytes has been transferred</li>
+ * <li>random <code>IOException</code>s with given probability</li>
+ * </ul>
+ * <P>
+ * All random decisions are drawn from a generator initialized with the seed, so a single threaded
+ * run with the same seed and the same call sequence injects the same faults.
+ * Every injected fault is a new exception, so its stack trace points to the faulted call and
+ * suppressed exceptions added by the caller don't leak to other faults.
+ * All faults are disabled by default.
+ * </P>
+ * <p>
+ * This class is not thread safe. Use one instance per wrapper.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class FaultInjector {
+
+    private final SplittableRandom random;
+
+    private long minLatencyNanos;
+
+    private long maxLatencyNanos;
+
+    private double spikeProbability;
+
+    private long spikeNanos;
+
+    private double shortReadProbability;
+
+    private long stallAfterBytes = -1;
+
+    private long stallNanos;
+
+    private double failureProbability;
+
+    private long transferred;
+
+    private boolean stalled;
+
+    /**
+     * Creates a <code>FaultInjector</code>.
+     *
+     * @param seed seed of the random decisions
+     */
+    public FaultInjector( final long seed ) {
+        random = new SplittableRandom( seed );
+    }
+
+    /**
+     * Adds latency to every call, drawn uniformly from the given range.
+     *
+     * @param minNanos minimal latency in nanoseconds
+     * @param maxNanos maximal latency in nanoseconds, equal to <B>minNanos</B> for fixed latency
+     * @return this injector
+     */
+    public FaultInjector setLatency( final long minNanos, final long maxNanos ) {
+        // ensure preconditions
+        if ( minNanos < 0 || maxNanos < minNanos ) {
+            throw new IllegalArgumentException( "Latency range is invalid" );
+        }
+        // method implementation
+        minLatencyNanos = minNanos;
+        maxLatencyNanos = maxNanos;
+        return this;
+    }
+
+    /**
+     * Adds latency spike to calls with given probability, on top of the regular latency.
+     *
+     * @param probability probability of a spike per call
+     * @param nanos spike duration in nanoseconds
+     * @return this injector
+     */
+    public FaultInjector setLatencySpikes( final double probability, final long nanos ) {
+        // ensure preconditions
+        ensureProbability( probability );
+        if ( nanos < 0 ) {
+            throw new IllegalArgumentException( "Spike duration cannot be negative" );
+        }
+        // method implementation
+        spikeProbability = probability;
+        spikeNanos = nanos;
+        return this;
+    }
+
+    /**
+     * Makes reads return fewer bytes or characters than requested with given probability.
+     * The shortened length is drawn uniformly, at least one unit is always requested from the wrapped stream.
+     *
+     * @param probability probability of a short read per call
+     * @return this injector
+     */
+    public FaultInjector setShortReads( final double probability ) {
+        // ensure preconditions
+        ensureProbability( probability );
+        // method implementation
+        shortReadProbability = probability;
+        return this;
+    }
+
+    /**
+     * Stalls once the number of transferred bytes or characters reaches <B>afterBytes</B>.
+     *
+     * @param afterBytes number of units transferred before the stall
+     * @param nanos stall duration in nanoseconds
+     * @return this injector
+     */
+    public FaultInjector setStall( final long afterBytes, final long nanos ) {
+        // ensure preconditions
+        if ( afterBytes < 0 ) {
+            throw new IllegalArgumentException( "Stall position cannot be negative" );
+        }
+        if ( nanos < 0 ) {
+            throw new IllegalArgumentException( "Stall duration cannot be negative" );
+        }
+        // method implementation
+        stallAfterBytes = afterBytes;
+        stallNanos = nanos;
+        stalled = false;
+        return this;
+    }
+
+    /**
+     * Fails calls with <code>IOException</code> with given probability.
+     *
+     * @param probability probability of a failure per call
+     * @return this injector
+     */
+    public FaultInjector setFailureProbability( final double probability ) {
+        // ensure preconditions
+        ensureProbability( probability );
+        // method implementation
+        failureProbability = probability;
+        return this;
+    }
+
+    /**
+     * Returns number of bytes or characters transferred through the wrappers using this injector.
+     */
+    public long getTransferred() {
+        return transferred;
+    }
+
+    /**
+     * Applies latency and failure faults before a call is delegated.
+     */
+    void beforeCall() throws IOException {
+        long delay = minLatencyNanos;
+        if ( maxLatencyNanos > minLatencyNanos ) {
+            delay += random.nextLong( maxLatencyNanos - minLatencyNanos + 1 );
+        }
+        if ( spikeProbability > 0 && random.nextDouble() < spikeProbability ) {
+            delay += spikeNanos;
+        }
+        pause( delay );
+        if ( failureProbability > 0 && random.nextDouble() < failureProbability ) {
+            throw new IOException( "Injected fault" );
+        }
+    }
+
+    /**
+     * Returns possibly shortened length of a read request.
+     */
+    int readLength( final int length ) {
+        if ( length > 1 && shortReadProbability > 0 && random.nextDouble() < shortReadProbability ) {
+            return 1 + random.nextInt( length - 1 );
+        }
+        return length;
+    }
+
+    /**
+     * Accounts transferred units and applies the stall once its position has been reached.
+     */
+    void afterTransfer( final long count ) throws IOException {
+        if ( count <= 0 ) {
+            return;
+        }
+        transferred += count;
+        if ( !stalled && stallAfterBytes >= 0 && transferred >= stallAfterBytes ) {
+            stalled = true;
+            pause( stallNanos );
+        }
+    }
+
+    private static void pause( final long nanos ) throws IOException {
+        if ( nanos <= 0 ) {
+            return;
+        }
+        final long deadline = System.nanoTime() + nanos;
+        long delay = nanos;
+        while ( delay > 0 ) {
+            LockSupport.parkNanos( delay );
+            if ( Thread.interrupted() ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while injecting latency" );
+            }
+            delay = deadline - System.nanoTime();
+        }
+    }
+
+    private static void ensureProbability( final double probability ) {
+        if ( !( probability >= 0 && probability <= 1 ) ) {
+            throw new IllegalArgumentException( "Probability must be within <0, 1> range" );
+        }
+    }
+
+}
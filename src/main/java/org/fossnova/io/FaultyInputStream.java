@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <P>
+ * A <code>FaultyInputStream</code> injects faults configured by a {@link FaultInjector} into calls
+ * passing through it: added latency, short reads, stalls and random <code>IOException</code>s.
+ * Together with a fixed seed it allows reproducible tail latency and timeout tests
+ * without real slow or failing devices. The <B>close</B> call is never faulted.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class FaultyInputStream extends DelegatingInputStream {
+
+    private final FaultInjector injector;
+
+    /**
+     * Creates a <code>FaultyInputStream</code>.
+     *
+     * @param delegate the input stream to inject faults into
+     * @param injector injector deciding which faults to inject
+     */
+    public FaultyInputStream( final InputStream delegate, final FaultInjector injector ) {
+        // ensure preconditions
+        super( delegate );
+        if ( injector == null ) {
+            throw new IllegalArgumentException( "FaultInjector cannot be null" );
+        }
+        // initialize
+        this.injector = injector;
+    }
+
+    /**
+     * Returns injector deciding which faults to inject.
+     */
+    public FaultInjector getInjector() {
+        return injector;
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped input stream.
+     */
+    @Override
+    public int read() throws IOException {
+        injector.beforeCall();
+        final int retVal = super.read();
+        injector.afterTransfer( retVal != -1 ? 1 : 0 );
+        return retVal;
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped input stream.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped input stream.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        injector.beforeCall();
+        final int retVal = super.read( buffer, offset, injector.readLength( length ) );
+        injector.afterTransfer( retVal );
+        return retVal;
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped input stream.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        injector.beforeCall();
+        final long retVal = super.skip( count );
+        injector.afterTransfer( retVal );
+        return retVal;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>FaultyOutputStream</code> injects faults configured by a {@link FaultInjector} into calls
+ * passing through it: added latency, stalls and random <code>IOException</code>s.
+ * Together with a fixed seed it allows reproducible tail latency and timeout tests
+ * without real slow or failing devices. The <B>close</B> call is never faulted.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class FaultyOutputStream extends DelegatingOutputStream {
+
+    private final FaultInjector injector;
+
+    /**
+     * Creates a <code>FaultyOutputStream</code>.
+     *
+     * @param delegate the output stream to inject faults into
+     * @param injector injector deciding which faults to inject
+     */
+    public FaultyOutputStream( final OutputStream delegate, final FaultInjector injector ) {
+        // ensure preconditions
+        super( delegate );
+        if ( injector == null ) {
+            throw new IllegalArgumentException( "FaultInjector cannot be null" );
+        }
+        // initialize
+        this.injector = injector;
+    }
+
+    /**
+     * Returns injector deciding which faults to inject.
+     */
+    public FaultInjector getInjector() {
+        return injector;
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped output stream.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        injector.beforeCall();
+        super.write( data );
+        injector.afterTransfer( 1 );
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped output stream.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        write( data, 0, data.length );
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped output stream.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        injector.beforeCall();
+        super.write( data, offset, length );
+        injector.afterTransfer( length );
+    }
+
+    /**
+     * Injects faults and delegates the call to the wrapped output stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        injector.beforeCall();
+        super.flush();
+    }
+
+}
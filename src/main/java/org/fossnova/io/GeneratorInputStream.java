@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <P>
+ * A <code>GeneratorInputStream</code> produces deterministic synthetic data of given length
+ * without any I/O. It is intended to feed load tests and benchmarks. Available modes:
+ * </P>
+ * <ul>
+ * <li>{@link #zeros(long)} - zero bytes</li>
+ * <li>{@link #pattern(byte[], long)} - repeating pattern</li>
+ * <li>{@link #random(long, long)} - seeded pseudo random bytes</li>
+ * <li>{@link #records(String, long)} - text records rendered from a template</li>
+ * </ul>
+ * <P>
+ * Every byte is a function of its position only, so arrays are filled in bulk,
+ * {@link #skip(long)} completes in constant time and mark/reset is supported without buffering.
+ * It never throws <code>IOException</code>.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class GeneratorInputStream extends InputStream {
+
+    static final char PLACEHOLDER = '#';
+
+    private static final int MASK = 0xFF;
+
+    private static final int BLOCK_SIZE = 8192;
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle( long[].class, ByteOrder.LITTLE_ENDIAN );
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final long MIX_MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+
+    private static final long MIX_MULTIPLIER_2 = 0x94D049BB133111EBL;
+
+    private static final int MIX_SHIFT_1 = 30;
+
+    private static final int MIX_SHIFT_2 = 27;
+
+    private static final int MIX_SHIFT_3 = 31;
+
+    private static final int WORD_SHIFT = 3;
+
+    private static final int MAX_DECIMAL_DIGITS = 18;
+
+    private static final int RADIX = 10;
+
+    private final Source source;
+
+    private final long length;
+
+    private final byte[] singleByte = new byte[ 1 ];
+
+    private long position;
+
+    private long markPosition;
+
+    private boolean closed;
+
+    private GeneratorInputStream( final Source source, final long length ) {
+        // ensure preconditions
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "Length cannot be negative" );
+        }
+        // initialize
+        this.source = source;
+        this.length = length;
+    }
+
+    /**
+     * Creates stream of zero bytes.
+     *
+     * @param length stream length
+     * @return generator input stream
+     */
+    public static GeneratorInputStream zeros( final long length ) {
+        return new GeneratorInputStream( new ZeroSource(), length );
+    }
+
+    /**
+     * Creates stream repeating the <B>pattern</B>.
+     *
+     * @param pattern bytes to be repeated, the array is copied
+     * @param length stream length
+     * @return generator input stream
+     */
+    public static GeneratorInputStream pattern( final byte[] pattern, final long length ) {
+        // ensure preconditions
+        if ( pattern == null ) {
+            throw new IllegalArgumentException( "Pattern cannot be null" );
+        }
+        if ( pattern.length == 0 ) {
+            throw new IllegalArgumentException( "Pattern cannot be empty" );
+        }
+        // method implementation
+        return new GeneratorInputStream( new PatternSource( pattern ), length );
+    }
+
+    /**
+     * Creates stream of pseudo random bytes. Streams created with the same seed produce the same bytes.
+     * The generator is counter based (xorshift-multiply mixing of the seeded word index),
+     * so it supports random access.
+     *
+     * @param seed generator seed
+     * @param length stream length
+     * @return generator input stream
+     */
+    public static GeneratorInputStream random( final long seed, final long length ) {
+        return new GeneratorInputStream( new RandomSource( seed ), length );
+    }
+
+    /**
+     * Creates stream of <B>count</B> UTF-8 encoded records rendered from the <B>template</B>.
+     * The first run of <code>'#'</code> characters in the template is replaced by the zero padded
+     * record number (modulo the run width), e.g. template <code>"id=######,name=user\n"</code>
+     * produces <code>"id=000000,name=user\n"</code>, <code>"id=000001,name=user\n"</code>, ...
+     * All records have the same length.
+     *
+     * @param template record template
+     * @param count number of records
+     * @return generator input stream
+     */
+    public static GeneratorInputStream records( final String template, final long count ) {
+        // ensure preconditions
+        if ( template == null ) {
+            throw new IllegalArgumentException( "Template cannot be null" );
+        }
+        if ( template.isEmpty() ) {
+            throw new IllegalArgumentException( "Template cannot be empty" );
+        }
+        if ( count < 0 ) {
+            throw new IllegalArgumentException( "Count cannot be negative" );
+        }
+        // method implementation
+        final byte[] bytes = template.getBytes( StandardCharsets.UTF_8 );
+        if ( count > Long.MAX_VALUE / bytes.length ) {
+            throw new IllegalArgumentException( "Stream too long" );
+        }
+        return new GeneratorInputStream( new RecordSource( bytes ), count * bytes.length );
+    }
+
+    /**
+     * Returns stream length.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns current position.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read()} javadoc.
+     */
+    @Override
+    public int read() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( position == length ) {
+            return -1;
+        }
+        source.fill( position++, singleByte, 0, 1 );
+        return singleByte[ 0 ] & MASK;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[])} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer ) {
+        // ensure preconditions
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // method implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        if ( position == this.length ) {
+            return -1;
+        }
+        final int count = ( int ) Math.min( length, this.length - position );
+        source.fill( position, buffer, offset, count );
+        position += count;
+        return count;
+    }
+
+    /**
+     * Skips in constant time.
+     */
+    @Override
+    public long skip( final long count ) {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 ) {
+            return 0;
+        }
+        final long skipped = Math.min( count, length - position );
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns number of remaining bytes capped to <code>Integer.MAX_VALUE</code>.
+     */
+    @Override
+    public int available() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return ( int ) Math.min( length - position, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Always returns <B>true</B>.
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks current position, the <B>readLimit</B> is ignored.
+     */
+    @Override
+    public void mark( final int readLimit ) {
+        markPosition = position;
+    }
+
+    /**
+     * Returns to the marked position or to the beginning of the stream if not marked.
+     */
+    @Override
+    public void reset() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        position = markPosition;
+    }
+
+    /**
+     * See {@link java.io.InputStream#close()} javadoc.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    /**
+     * Returns 64 pseudo random bits for given seeded counter (SplitMix64 finalizer).
+     */
+    static long mix( final long seed, final long counter ) {
+        long z = seed + counter * GOLDEN_GAMMA;
+        z = ( z ^ ( z >>> MIX_SHIFT_1 ) ) * MIX_MULTIPLIER_1;
+        z = ( z ^ ( z >>> MIX_SHIFT_2 ) ) * MIX_MULTIPLIER_2;
+        return z ^ ( z >>> MIX_SHIFT_3 );
+    }
+
+    /**
+     * Returns start index and width of the first placeholder run, or <code>null</code> if there is none.
+     */
+    private static int[] placeholder( final byte[] template ) {
+        int start = -1;
+        int end = -1;
+        for ( int i = 0; i < template.length; i++ ) {
+            if ( template[ i ] == PLACEHOLDER ) {
+                if ( start == -1 ) {
+                    start = i;
+                }
+                end = i + 1;
+            } else if ( start != -1 ) {
+                break;
+            }
+        }
+        return start == -1 ? null : new int[] { start, end - start };
+    }
+
+    /**
+     * Writes zero padded <B>number</B> modulo 10^<B>width</B> to the <B>target</B> array.
+     */
+    private static void renderNumber( final long number, final byte[] target, final int offset, final int width ) {
+        long remaining = number;
+        for ( int i = offset + width - 1; i >= offset; i-- ) {
+            target[ i ] = ( byte ) ( '0' + remaining % RADIX );
+            remaining /= RADIX;
+        }
+    }
+
+    /**
+     * Returns <B>number</B> reduced to fit into placeholder of given width.
+     */
+    static long modulo( final long number, final int width ) {
+        if ( width > MAX_DECIMAL_DIGITS ) {
+            return number;
+        }
+        long limit = 1;
+        for ( int i = 0; i < width; i++ ) {
+            limit *= RADIX;
+        }
+        return number % limit;
+    }
+
+    private abstract static class Source {
+
+        abstract void fill( long position, byte[] buffer, int offset, int length );
+
+    }
+
+    private static final class ZeroSource extends Source {
+
+        @Override
+        void fill( final long position, final byte[] buffer, final int offset, final int length ) {
+            Arrays.fill( buffer, offset, offset + length, ( byte ) 0 );
+        }
+
+    }
+
+    private static final class PatternSource extends Source {
+
+        private final int period;
+
+        private final byte[] block;
+
+        private PatternSource( final byte[] pattern ) {
+            period = pattern.length;
+            // expand the pattern so bulk reads copy large chunks
+            final int repeats = Math.max( 1, BLOCK_SIZE / period ) + 1;
+            block = new byte[ period * repeats ];
+            for ( int i = 0; i < repeats; i++ ) {
+                System.arraycopy( pattern, 0, block, i * period, period );
+            }
+        }
+
+        @Override
+        void fill( final long position, final byte[] buffer, final int offset, final int length ) {
+            int start = ( int ) ( position % period );
+            int copied = 0;
+            while ( copied < length ) {
+                final int count = Math.min( length - copied, block.length - start );
+                System.arraycopy( block, start, buffer, offset + copied, count );
+                copied += count;
+                start = ( start + count ) % period;
+            }
+        }
+
+    }
+
+    private static final class RandomSource extends Source {
+
+        private final long seed;
+
+        private RandomSource( final long seed ) {
+            this.seed = seed;
+        }
+
+        @Override
+        void fill( final long position, final byte[] buffer, final int offset, final int length ) {
+            final int end = offset + length;
+            long current = position;
+            int i = offset;
+            // unaligned head
+            while ( i < end && ( current & ( Long.BYTES - 1 ) ) != 0 ) {
+                final int inWord = ( int ) ( current & ( Long.BYTES - 1 ) );
+                buffer[ i++ ] = ( byte ) ( mix( seed, current >>> WORD_SHIFT ) >>> ( inWord * Byte.SIZE ) );
+                current++;
+            }
+            // whole words
+            while ( end - i >= Long.BYTES ) {
+                LONG_VIEW.set( buffer, i, mix( seed, current >>> WORD_SHIFT ) );
+                i += Long.BYTES;
+                current += Long.BYTES;
+            }
+            // tail
+            if ( i < end ) {
+                long word = mix( seed, current >>> WORD_SHIFT );
+                while ( i < end ) {
+                    buffer[ i++ ] = ( byte ) word;
+                    word >>>= Byte.SIZE;
+                }
+            }
+        }
+
+    }
+
+    private static final class RecordSource extends Source {
+
+        private final int recordLength;
+
+        private final int recordsPerBlock;
+
+        private final byte[] block;
+
+        private final int placeholderStart;
+
+        private final int placeholderWidth;
+
+        private long renderedBlock = -1;
+
+        private RecordSource( final byte[] template ) {
+            final int[] placeholder = placeholder( template );
+            placeholderStart = placeholder != null ? placeholder[ 0 ] : 0;
+            placeholderWidth = placeholder != null ? placeholder[ 1 ] : 0;
+            // render many records at once so bulk reads copy large chunks
+            recordLength = template.length;
+            recordsPerBlock = Math.max( 1, BLOCK_SIZE / recordLength );
+            block = new byte[ recordLength * recordsPerBlock ];
+            for ( int i = 0; i < recordsPerBlock; i++ ) {
+                System.arraycopy( template, 0, block, i * recordLength, recordLength );
+            }
+        }
+
+        @Override
+        void fill( final long position, final byte[] buffer, final int offset, final int length ) {
+            long blockIndex = position / block.length;
+            int start = ( int ) ( position % block.length );
+            int copied = 0;
+            while ( copied < length ) {
+                if ( renderedBlock != blockIndex && placeholderWidth > 0 ) {
+                    render( blockIndex * recordsPerBlock );
+                    renderedBlock = blockIndex;
+                }
+                final int count = Math.min( length - copied, block.length - start );
+                System.arraycopy( block, start, buffer, offset + copied, count );
+                copied += count;
+                start = 0;
+                blockIndex++;
+            }
+        }
+
+        private void render( final long first ) {
+            renderNumber( modulo( first, placeholderWidth ), block, placeholderStart, placeholderWidth );
+            // following records differ by one, increment the previous number in place
+            for ( int i = 1; i < recordsPerBlock; i++ ) {
+                final int previous = ( i - 1 ) * recordLength + placeholderStart;
+                final int current = i * recordLength + placeholderStart;
+                System.arraycopy( block, previous, block, current, placeholderWidth );
+                for ( int k = current + placeholderWidth - 1; k >= current; k-- ) {
+                    if ( block[ k ] != '9' ) {
+                        block[ k ]++;
+                        break;
+                    }
+                    block[ k ] = '0';
+                }
+            }
+        }
+
+    }
+
+}
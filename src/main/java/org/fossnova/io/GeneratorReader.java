@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * <P>
+ * A <code>GeneratorReader</code> produces deterministic synthetic characters of given length
+ * without any I/O. It is intended to feed load tests and benchmarks of parsers. Available modes:
+ * </P>
+ * <ul>
+ * <li>{@link #zeros(long)} - <code>'\0'</code> characters</li>
+ * <li>{@link #pattern(String, long)} - repeating pattern</li>
+ * <li>{@link #random(long, long)} - seeded pseudo random printable ASCII characters</li>
+ * <li>{@link #records(String, long)} - text records rendered from a template</li>
+ * </ul>
+ * <P>
+ * Every character is a function of its position only, so arrays are filled in bulk,
+ * {@link #skip(long)} completes in constant time and mark/reset is supported without buffering.
+ * It never throws <code>IOException</code>.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class GeneratorReader extends Reader {
+
+    private static final int BLOCK_SIZE = 8192;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final char FIRST_PRINTABLE = ' ';
+
+    private static final int PRINTABLE_COUNT = '~' - ' ' + 1;
+
+    private static final int WORD_SHIFT = 3;
+
+    private static final int RADIX = 10;
+
+    private final Source source;
+
+    private final long length;
+
+    private final char[] singleChar = new char[ 1 ];
+
+    private long position;
+
+    private long markPosition;
+
+    private boolean closed;
+
+    private GeneratorReader( final Source source, final long length ) {
+        // ensure preconditions
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "Length cannot be negative" );
+        }
+        // initialize
+        this.source = source;
+        this.length = length;
+    }
+
+    /**
+     * Creates reader of <code>'\0'</code> characters.
+     *
+     * @param length reader length
+     * @return generator reader
+     */
+    public static GeneratorReader zeros( final long length ) {
+        return new GeneratorReader( new ZeroSource(), length );
+    }
+
+    /**
+     * Creates reader repeating the <B>pattern</B>.
+     *
+     * @param pattern characters to be repeated
+     * @param length reader length
+     * @return generator reader
+     */
+    public static GeneratorReader pattern( final String pattern, final long length ) {
+        // ensure preconditions
+        if ( pattern == null ) {
+            throw new IllegalArgumentException( "Pattern cannot be null" );
+        }
+        if ( pattern.isEmpty() ) {
+            throw new IllegalArgumentException( "Pattern cannot be empty" );
+        }
+        // method implementation
+        return new GeneratorReader( new PatternSource( pattern.toCharArray() ), length );
+    }
+
+    /**
+     * Creates reader of pseudo random printable ASCII characters. Readers created with the same seed
+     * produce the same characters. The generator is counter based (xorshift-multiply mixing of the
+     * seeded word index), so it supports random access.
+     *
+     * @param seed generator seed
+     * @param length reader length
+     * @return generator reader
+     */
+    public static GeneratorReader random( final long seed, final long length ) {
+        return new GeneratorReader( new RandomSource( seed ), length );
+    }
+
+    /**
+     * Creates reader of <B>count</B> records rendered from the <B>template</B>.
+     * The first run of <code>'#'</code> characters in the template is replaced by the zero padded
+     * record number (modulo the run width), see {@link GeneratorInputStream#records(String, long)}.
+     * All records have the same length.
+     *
+     * @param template record template
+     * @param count number of records
+     * @return generator reader
+     */
+    public static GeneratorReader records( final String template, final long count ) {
+        // ensure preconditions
+        if ( template == null ) {
+            throw new IllegalArgumentException( "Template cannot be null" );
+        }
+        if ( template.isEmpty() ) {
+            throw new IllegalArgumentException( "Template cannot be empty" );
+        }
+        if ( count < 0 ) {
+            throw new IllegalArgumentException( "Count cannot be negative" );
+        }
+        if ( count > Long.MAX_VALUE / template.length() ) {
+            throw new IllegalArgumentException( "Reader too long" );
+        }
+        // method implementation
+        return new GeneratorReader( new RecordSource( template.toCharArray() ), count * template.length() );
+    }
+
+    /**
+     * Returns reader length.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns current position.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * See {@link java.io.Reader#read()} javadoc.
+     */
+    @Override
+    public int read() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( position == length ) {
+            return -1;
+        }
+        source.fill( position++, singleChar, 0, 1 );
+        return singleChar[ 0 ];
+    }
+
+    /**
+     * See {@link java.io.Reader#read(char[])} javadoc.
+     */
+    @Override
+    public int read( final char[] buffer ) {
+        // ensure preconditions
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // method implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.Reader#read(char[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final char[] buffer, final int offset, final int length ) {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        if ( position == this.length ) {
+            return -1;
+        }
+        final int count = ( int ) Math.min( length, this.length - position );
+        source.fill( position, buffer, offset, count );
+        position += count;
+        return count;
+    }
+
+    /**
+     * Skips in constant time.
+     */
+    @Override
+    public long skip( final long count ) {
+        // ensure preconditions
+        ensureOpen();
+        if ( count < 0 ) {
+            throw new IllegalArgumentException( "skip value is negative" );
+        }
+        // method implementation
+        final long skipped = Math.min( count, length - position );
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns <B>true</B> unless at the end of the reader.
+     */
+    @Override
+    public boolean ready() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return position < length;
+    }
+
+    /**
+     * Always returns <B>true</B>.
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks current position, the <B>readAheadLimit</B> is ignored.
+     */
+    @Override
+    public void mark( final int readAheadLimit ) {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        markPosition = position;
+    }
+
+    /**
+     * Returns to the marked position or to the beginning of the reader if not marked.
+     */
+    @Override
+    public void reset() {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        position = markPosition;
+    }
+
+    /**
+     * See {@link java.io.Reader#close()} javadoc.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Reader is closed" );
+        }
+    }
+
+    private abstract static class Source {
+
+        abstract void fill( long position, char[] buffer, int offset, int length );
+
+    }
+
+    private static final class ZeroSource extends Source {
+
+        @Override
+        void fill( final long position, final char[] buffer, final int offset, final int length ) {
+            Arrays.fill( buffer, offset, offset + length, '\0' );
+        }
+
+    }
+
+    private static final class PatternSource extends Source {
+
+        private final int period;
+
+        private final char[] block;
+
+        private PatternSource( final char[] pattern ) {
+            period = pattern.length;
+            // expand the pattern so bulk reads copy large chunks
+            final int repeats = Math.max( 1, BLOCK_SIZE / period ) + 1;
+            block = new char[ period * repeats ];
+            for ( int i = 0; i < repeats; i++ ) {
+                System.arraycopy( pattern, 0, block, i * period, period );
+            }
+        }
+
+        @Override
+        void fill( final long position, final char[] buffer, final int offset, final int length ) {
+            int start = ( int ) ( position % period );
+            int copied = 0;
+            while ( copied < length ) {
+                final int count = Math.min( length - copied, block.length - start );
+                System.arraycopy( block, start, buffer, offset + copied, count );
+                copied += count;
+                start = ( start + count ) % period;
+            }
+        }
+
+    }
+
+    private static final class RandomSource extends Source {
+
+        private final long seed;
+
+        private RandomSource( final long seed ) {
+            this.seed = seed;
+        }
+
+        @Override
+        void fill( final long position, final char[] buffer, final int offset, final int length ) {
+            final int end = offset + length;
+            long current = position;
+            int i = offset;
+            while ( i < end ) {
+                final int inWord = ( int ) ( current & ( Long.BYTES - 1 ) );
+                long word = GeneratorInputStream.mix( seed, current >>> WORD_SHIFT ) >>> ( inWord * Byte.SIZE );
+                final int count = Math.min( Long.BYTES - inWord, end - i );
+                for ( int k = 0; k < count; k++ ) {
+                    // scale byte to printable range without modulo bias
+                    buffer[ i++ ] = ( char ) ( FIRST_PRINTABLE + ( ( ( int ) word & BYTE_MASK ) * PRINTABLE_COUNT >>> Byte.SIZE ) );
+                    word >>>= Byte.SIZE;
+                }
+                current += count;
+            }
+        }
+
+    }
+
+    private static final class RecordSource extends Source {
+
+        private final int recordLength;
+
+        private final int recordsPerBlock;
+
+        private final char[] block;
+
+        private final int placeholderStart;
+
+        private final int placeholderWidth;
+
+        private long renderedBlock = -1;
+
+        private RecordSource( final char[] template ) {
+            int start = -1;
+            int end = -1;
+            for ( int i = 0; i < template.length; i++ ) {
+                if ( template[ i ] == GeneratorInputStream.PLACEHOLDER ) {
+                    if ( start == -1 ) {
+                        start = i;
+                    }
+                    end = i + 1;
+                } else if ( start != -1 ) {
+                    break;
+                }
+            }
+            placeholderStart = start != -1 ? start : 0;
+            placeholderWidth = start != -1 ? end - start : 0;
+            // render many records at once so bulk reads copy large chunks
+            recordLength = template.length;
+            recordsPerBlock = Math.max( 1, BLOCK_SIZE / recordLength );
+            block = new char[ recordLength * recordsPerBlock ];
+            for ( int i = 0; i < recordsPerBlock; i++ ) {
+                System.arraycopy( template, 0, block, i * recordLength, recordLength );
+            }
+        }
+
+        @Override
+        void fill( final long position, final char[] buffer, final int offset, final int length ) {
+            long blockIndex = position / block.length;
+            int start = ( int ) ( position % block.length );
+            int copied = 0;
+            while ( copied < length ) {
+                if ( renderedBlock != blockIndex && placeholderWidth > 0 ) {
+                    render( blockIndex * recordsPerBlock );
+                    renderedBlock = blockIndex;
+                }
+                final int count = Math.min( length - copied, block.length - start );
+                System.arraycopy( block, start, buffer, offset + copied, count );
+                copied += count;
+                start = 0;
+                blockIndex++;
+            }
+        }
+
+        private void render( final long first ) {
+            long remaining = GeneratorInputStream.modulo( first, placeholderWidth );
+            for ( int i = placeholderStart + placeholderWidth - 1; i >= placeholderStart; i-- ) {
+                block[ i ] = ( char ) ( '0' + remaining % RADIX );
+                remaining /= RADIX;
+            }
+            // following records differ by one, increment the previous number in place
+            for ( int i = 1; i < recordsPerBlock; i++ ) {
+                final int previous = ( i - 1 ) * recordLength + placeholderStart;
+                final int current = i * recordLength + placeholderStart;
+                System.arraycopy( block, previous, block, current, placeholderWidth );
+                for ( int k = current + placeholderWidth - 1; k >= current; k-- ) {
+                    if ( block[ k ] != '9' ) {
+                        block[ k ]++;
+                        break;
+                    }
+                    block[ k ] = '0';
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <P>
+ * A <code>GroupCommitOutputStream</code> makes data written by many threads durable with as few
+ * <code>FileChannel.force()</code> calls as possible. Writers append to shared buffer and call {@link #commit()},
+ * which blocks until all data appended by the caller have been written to the channel and forced to the storage device.
+ * </P>
+ * <P>
+ * A single syncer task writes all data appended since the previous sync with one write followed by one force,
+ * completing every commit requested meanwhile. While the syncer waits for the device writers fill the other buffer,
+ * so the number of durable commits per second grows with the number of committing threads instead of being
+ * limited by the latency of one force. The {@link #flush()} method is equivalent to {@link #commit()}.
+ * </P>
+ * <P>
+ * The syncer task is submitted to the <code>Executor</code> passed to the constructor or runs in its own daemon thread
+ * if no executor is specified. Errors of the channel are reported by all subsequent calls. The {@link #close()} method
+ * commits all appended data, stops the syncer task and closes the channel.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class GroupCommitOutputStream extends DelegatingOutputStream {
+
+    private static final int DEFAULT_BUFFER_SIZE = 262144;
+
+    private final FileChannel channel;
+
+    private final boolean metaData;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition work = lock.newCondition();
+
+    private final Condition synced = lock.newCondition();
+
+    private final CountDownLatch finished = new CountDownLatch( 1 );
+
+    private ByteBuffer active;
+
+    private ByteBuffer spare;
+
+    private long appended;
+
+    private long requested;
+
+    private long durable;
+
+    private long syncCount;
+
+    private boolean closed;
+
+    private volatile IOException failure;
+
+    /**
+     * Creates a <code>GroupCommitOutputStream</code> with two 256KB buffers synced by its own daemon thread.
+     * File metadata are not forced.
+     *
+     * @param channel file channel to append to
+     */
+    public GroupCommitOutputStream( final FileChannel channel ) {
+        this( channel, DEFAULT_BUFFER_SIZE, false, null );
+    }
+
+    /**
+     * Creates a <code>GroupCommitOutputStream</code>.
+     *
+     * @param channel file channel to append to
+     * @param bufferSize size of each of the two buffers
+     * @param metaData whether file metadata are forced too, see {@link FileChannel#force(boolean)}
+     * @param executor executor running syncer task or <code>null</code> to use own daemon thread
+     */
+    public GroupCommitOutputStream( final FileChannel channel, final int bufferSize, final boolean metaData, final Executor executor ) {
+        // ensure preconditions
+        super( channel != null ? Channels.newOutputStream( channel ) : null );
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "Buffer size must be positive" );
+        }
+        // initialize
+        this.channel = channel;
+        this.metaData = metaData;
+        active = ByteBuffer.allocateDirect( bufferSize );
+        spare = ByteBuffer.allocateDirect( bufferSize );
+        final Runnable task = new Syncer();
+        if ( executor != null ) {
+            executor.execute( task );
+        } else {
+            final Thread thread = new Thread( task, "GroupCommitOutputStream syncer" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        lock.lock();
+        try {
+            // ensure preconditions
+            ensureOpen();
+            // method implementation
+            awaitSpace();
+            active.put( ( byte ) data );
+            appended++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     * Data are appended as one unit, they never interleave with data of concurrent writers
+     * unless they are larger than the buffer.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        lock.lock();
+        try {
+            ensureOpen();
+            if ( length <= active.capacity() ) {
+                while ( active.remaining() < length ) {
+                    awaitSwap();
+                }
+            }
+            int position = offset;
+            final int end = offset + length;
+            while ( position < end ) {
+                awaitSpace();
+                final int count = Math.min( end - position, active.remaining() );
+                active.put( data, position, count );
+                appended += count;
+                position += count;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until all data appended so far by any thread have been written to the channel and forced
+     * to the storage device. Concurrent commits are completed by the same force.
+     *
+     * @throws IOException if the channel failed
+     */
+    public void commit() throws IOException {
+        lock.lock();
+        try {
+            // ensure preconditions
+            ensureOpen();
+            // method implementation
+            awaitDurable( appended );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Equivalent to {@link #commit()}.
+     */
+    @Override
+    public void flush() throws IOException {
+        commit();
+    }
+
+    /**
+     * Returns number of bytes that are known to be durable.
+     */
+    public long getDurable() {
+        lock.lock();
+        try {
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of forces issued so far. The ratio of commits to forces shows how well commits are grouped.
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits all appended data, stops syncer task and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if ( closed ) {
+                return;
+            }
+            closed = true;
+            requested = appended;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            finished.await();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for syncer task" );
+        } finally {
+            super.close();
+        }
+        checkFailure();
+    }
+
+    private void awaitSpace() throws IOException {
+        while ( !active.hasRemaining() ) {
+            awaitSwap();
+        }
+    }
+
+    private void awaitSwap() throws IOException {
+        checkFailure();
+        // full buffer is synced without waiting for commit
+        requested = Math.max( requested, appended );
+        work.signal();
+        try {
+            synced.await();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for free buffer" );
+        }
+        ensureOpen();
+    }
+
+    private void awaitDurable( final long position ) throws IOException {
+        if ( position > requested ) {
+            requested = position;
+            work.signal();
+        }
+        try {
+            while ( durable < position ) {
+                checkFailure();
+                synced.await();
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for commit" );
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if ( e != null ) {
+            throw new IOException( "Group commit failed", e );
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    private final class Syncer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while ( sync() ) {
+                    // sync until closed
+                }
+            } catch ( final IOException e ) {
+                failure = e;
+            } catch ( final Throwable t ) {
+                // unchecked failure must be reported too, committers would wait forever
+                failure = new IOException( "Syncer task failed unexpectedly", t );
+            } finally {
+                lock.lock();
+                try {
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                finished.countDown();
+            }
+        }
+
+        private boolean sync() throws IOException {
+            final ByteBuffer batch;
+            final long position;
+            lock.lock();
+            try {
+                while ( requested <= durable ) {
+                    if ( closed ) {
+                        return false;
+                    }
+                    try {
+                        work.await();
+                    } catch ( final InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException( "Syncer task interrupted" );
+                    }
+                }
+                batch = active;
+                active = spare;
+                spare = null;
+                position = appended;
+                // writers blocked on full buffer may continue
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.flip();
+            while ( batch.hasRemaining() ) {
+                channel.write( batch );
+            }
+            channel.force( metaData );
+            batch.clear();
+            lock.lock();
+            try {
+                spare = batch;
+                durable = position;
+                syncCount++;
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+    }
+
+}
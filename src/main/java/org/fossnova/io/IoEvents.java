@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <P>
+ * JDK Flight Recorder events emitted by the wrappers of this package.
+ * Every emission is guarded by the enabled state of its event type, so the cost
+ * of disabled events is single branch. Duration events are committed only if they
+ * exceed their threshold. The default thresholds can be changed in the recording
+ * settings, e.g. <code>org.fossnova.io.Read#threshold=1 ms</code>.
+ * </P>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+final class IoEvents {
+
+    private static final EventType READ = EventType.getEventType( ReadEvent.class );
+
+    private static final EventType WRITE = EventType.getEventType( WriteEvent.class );
+
+    private static final EventType FLUSH = EventType.getEventType( FlushEvent.class );
+
+    private static final EventType CLOSE = EventType.getEventType( CloseEvent.class );
+
+    private static final EventType LIMIT = EventType.getEventType( LimitEvent.class );
+
+    private static final EventType PUSHBACK_OVERFLOW = EventType.getEventType( PushbackOverflowEvent.class );
+
+    private static final EventType SLOW_DELEGATE = EventType.getEventType( SlowDelegateEvent.class );
+
+    private IoEvents() {
+    }
+
+    static ReadEvent beginRead() {
+        if ( !READ.isEnabled() ) {
+            return null;
+        }
+        final ReadEvent retVal = new ReadEvent();
+        retVal.begin();
+        return retVal;
+    }
+
+    static WriteEvent beginWrite() {
+        if ( !WRITE.isEnabled() ) {
+            return null;
+        }
+        final WriteEvent retVal = new WriteEvent();
+        retVal.begin();
+        return retVal;
+    }
+
+    static FlushEvent beginFlush() {
+        if ( !FLUSH.isEnabled() ) {
+            return null;
+        }
+        final FlushEvent retVal = new FlushEvent();
+        retVal.begin();
+        return retVal;
+    }
+
+    static CloseEvent beginClose() {
+        if ( !CLOSE.isEnabled() ) {
+            return null;
+        }
+        final CloseEvent retVal = new CloseEvent();
+        retVal.begin();
+        return retVal;
+    }
+
+    static SlowDelegateEvent beginDelegate() {
+        if ( !SLOW_DELEGATE.isEnabled() ) {
+            return null;
+        }
+        final SlowDelegateEvent retVal = new SlowDelegateEvent();
+        retVal.begin();
+        return retVal;
+    }
+
+    static void limitReached( final Object wrapper, final long limit ) {
+        if ( LIMIT.isEnabled() ) {
+            final LimitEvent event = new LimitEvent();
+            event.wrapperClass = wrapper.getClass();
+            event.limit = limit;
+            event.commit();
+        }
+    }
+
+    static void pushbackOverflow( final Object wrapper, final int capacity, final int requested ) {
+        if ( PUSHBACK_OVERFLOW.isEnabled() ) {
+            final PushbackOverflowEvent event = new PushbackOverflowEvent();
+            event.wrapperClass = wrapper.getClass();
+            event.capacity = capacity;
+            event.requested = requested;
+            event.commit();
+        }
+    }
+
+    @Name( "org.fossnova.io.Read" )
+    @Label( "Wrapper Read" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Read call passing through org.fossnova.io wrapper" )
+    @Threshold( "20 ms" )
+    @StackTrace( false )
+    static final class ReadEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        @Label( "Bytes or Characters Read" )
+        @DataAmount
+        private long count;
+
+        void end( final Object wrapper, final long count ) {
+            end();
+            if ( shouldCommit() ) {
+                wrapperClass = wrapper.getClass();
+                this.count = Math.max( count, 0 );
+                commit();
+            }
+        }
+
+    }
+
+    @Name( "org.fossnova.io.Write" )
+    @Label( "Wrapper Write" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Write call passing through org.fossnova.io wrapper" )
+    @Threshold( "20 ms" )
+    @StackTrace( false )
+    static final class WriteEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        @Label( "Bytes or Characters Written" )
+        @DataAmount
+        private long count;
+
+        void end( final Object wrapper, final long count ) {
+            end();
+            if ( shouldCommit() ) {
+                wrapperClass = wrapper.getClass();
+                this.count = count;
+                commit();
+            }
+        }
+
+    }
+
+    @Name( "org.fossnova.io.Flush" )
+    @Label( "Wrapper Flush" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Flush call passing through org.fossnova.io wrapper" )
+    @Threshold( "20 ms" )
+    static final class FlushEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        void end( final Object wrapper ) {
+            end();
+            if ( shouldCommit() ) {
+                wrapperClass = wrapper.getClass();
+                commit();
+            }
+        }
+
+    }
+
+    @Name( "org.fossnova.io.Close" )
+    @Label( "Wrapper Close" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Close call passing through org.fossnova.io wrapper" )
+    @Threshold( "20 ms" )
+    static final class CloseEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        void end( final Object wrapper ) {
+            end();
+            if ( shouldCommit() ) {
+                wrapperClass = wrapper.getClass();
+                commit();
+            }
+        }
+
+    }
+
+    @Name( "org.fossnova.io.BoundedLimitHit" )
+    @Label( "Bounded Limit Hit" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Bounded wrapper reached its limit" )
+    static final class LimitEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        @Label( "Limit" )
+        private long limit;
+
+    }
+
+    @Name( "org.fossnova.io.PushbackOverflow" )
+    @Label( "Pushback Overflow" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Pushed back data did not fit into pushback buffer" )
+    static final class PushbackOverflowEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        @Label( "Capacity" )
+        private int capacity;
+
+        @Label( "Requested" )
+        private int requested;
+
+    }
+
+    @Name( "org.fossnova.io.TeeDelegateSlow" )
+    @Label( "Tee Delegate Slow" )
+    @Category( { "FOSS Nova", "I/O" } )
+    @Description( "Single delegate of tee wrapper was slow" )
+    @Threshold( "10 ms" )
+    @StackTrace( false )
+    static final class SlowDelegateEvent extends Event {
+
+        @Label( "Wrapper Class" )
+        private Class<?> wrapperClass;
+
+        @Label( "Delegate Class" )
+        private Class<?> delegateClass;
+
+        @Label( "Delegate Index" )
+        private int delegateIndex;
+
+        @Label( "Operation" )
+        private String operation;
+
+        void end( final Object wrapper, final Object delegate, final int index, final String operation ) {
+            end();
+            if ( shouldCommit() ) {
+                wrapperClass = wrapper.getClass();
+                delegateClass = delegate.getClass();
+                delegateIndex = index;
+                this.operation = operation;
+                commit();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+/**
+ * <p>
+ * An <code>IoListener</code> observes the traffic passing through the
+ * <code>Delegating*</code> wrappers. A single wrapper may serve several observers
+ * (metrics, tracing, auditing) via {@link #compose(IoListener...)} instead of
+ * stacking one wrapper per concern.
+ * </p>
+ * <p>
+ * Callbacks are invoked on the thread performing the I/O operation, after the wrapped
+ * stream returned. Implementations must be fast and must not throw exceptions.
+ * All callbacks are no-ops by default.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public interface IoListener {
+
+    /**
+     * Listener ignoring all notifications. Wrappers created without explicit listener use it
+     * and test for it by identity before each callback, so unobserved streams never dispatch
+     * to a listener, no matter how many other listener types are in use.
+     */
+    IoListener NONE = new IoListener() { };
+
+    /**
+     * Called after a read operation completed.
+     *
+     * @param source the wrapper the data was read through
+     * @param count number of bytes or characters read, or <code>-1</code> at end of stream
+     */
+    default void onRead( final Object source, final int count ) {
+    }
+
+    /**
+     * Called after a write operation completed.
+     *
+     * @param source the wrapper the data was written through
+     * @param count number of bytes or characters written
+     */
+    default void onWrite( final Object source, final int count ) {
+    }
+
+    /**
+     * Called after a skip operation completed.
+     *
+     * @param source the wrapper the data was skipped through
+     * @param count number of bytes or characters actually skipped
+     */
+    default void onSkip( final Object source, final long count ) {
+    }
+
+    /**
+     * Called after the wrapped stream was flushed.
+     *
+     * @param source the wrapper that was flushed
+     */
+    default void onFlush( final Object source ) {
+    }
+
+    /**
+     * Called after the wrapped stream was closed.
+     *
+     * @param source the wrapper that was closed
+     */
+    default void onClose( final Object source ) {
+    }
+
+    /**
+     * Returns listener notifying all passed listeners in the given order.
+     *
+     * @param listeners listeners to be notified
+     * @return composite listener
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    static IoListener compose( final IoListener... listeners ) {
+        // ensure preconditions
+        if ( listeners == null ) {
+            throw new IllegalArgumentException( "IoListener cannot be null" );
+        }
+        for ( final IoListener listener : listeners ) {
+            if ( listener == null ) {
+                throw new IllegalArgumentException( "IoListener cannot be null" );
+            }
+        }
+        // method implementation
+        if ( listeners.length == 0 ) {
+            return NONE;
+        }
+        if ( listeners.length == 1 ) {
+            return listeners[ 0 ];
+        }
+        return new CompositeIoListener( listeners.clone() );
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <P>
+ * An <code>IoMetrics</code> collects statistics of the I/O calls passing through the metered wrappers
+ * (see {@link MeteredInputStream}, {@link MeteredOutputStream}, {@link MeteredReader} and {@link MeteredWriter}).
+ * It counts calls and transferred bytes or characters, records distribution of call sizes
+ * and measures time spent blocked in the wrapped delegate. To reduce the overhead of
+ * <code>System.nanoTime()</code> only randomly chosen one of N calls can be timed. Counters and
+ * histogram buckets are striped and sampling keeps no shared state, so one instance can be shared
+ * by many wrappers used by many threads.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class IoMetrics {
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final int sampleRate;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder timedCalls = new LongAdder();
+
+    private final LongAdder blockedNanos = new LongAdder();
+
+    private final LogLinearHistogram sizes = new LogLinearHistogram();
+
+    private final LogLinearHistogram latencies = new LogLinearHistogram();
+
+    /**
+     * Creates an <code>IoMetrics</code> timing every call.
+     */
+    public IoMetrics() {
+        this( 1 );
+    }
+
+    /**
+     * Creates an <code>IoMetrics</code> timing on average one of <B>sampleRate</B> calls.
+     *
+     * @param sampleRate how often calls are timed
+     */
+    public IoMetrics( final int sampleRate ) {
+        // ensure preconditions
+        if ( sampleRate <= 0 ) {
+            throw new IllegalArgumentException( "Sample rate must be positive" );
+        }
+        // initialize
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Returns snapshot of the collected statistics.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot( this );
+    }
+
+    long begin() {
+        if ( sampleRate != 1 && ThreadLocalRandom.current().nextInt( sampleRate ) != 0 ) {
+            return NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    void end( final long size, final long timestamp ) {
+        calls.increment();
+        bytes.add( size );
+        sizes.record( size );
+        if ( timestamp != NOT_SAMPLED ) {
+            final long nanos = System.nanoTime() - timestamp;
+            timedCalls.increment();
+            blockedNanos.add( nanos );
+            latencies.record( nanos );
+        }
+    }
+
+    /**
+     * Immutable copy of collected statistics.
+     */
+    public static final class Snapshot {
+
+        private final long calls;
+
+        private final long bytes;
+
+        private final long timedCalls;
+
+        private final long blockedNanos;
+
+        private final LogLinearHistogram.Snapshot sizes;
+
+        private final LogLinearHistogram.Snapshot latencies;
+
+        private Snapshot( final IoMetrics metrics ) {
+            calls = metrics.calls.sum();
+            bytes = metrics.bytes.sum();
+            timedCalls = metrics.timedCalls.sum();
+            blockedNanos = metrics.blockedNanos.sum();
+            sizes = metrics.sizes.snapshot();
+            latencies = metrics.latencies.snapshot();
+        }
+
+        /**
+         * Returns number of calls.
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Returns number of transferred bytes or characters.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns number of timed calls.
+         */
+        public long getTimedCalls() {
+            return timedCalls;
+        }
+
+        /**
+         * Returns time spent in the timed calls in nanoseconds.
+         */
+        public long getBlockedNanos() {
+            return blockedNanos;
+        }
+
+        /**
+         * Returns estimated time spent in all calls in nanoseconds.
+         */
+        public long getEstimatedBlockedNanos() {
+            return timedCalls == 0 ? 0 : ( long ) ( ( double ) blockedNanos / timedCalls * calls );
+        }
+
+        /**
+         * Returns distribution of call sizes.
+         */
+        public LogLinearHistogram.Snapshot getSizes() {
+            return sizes;
+        }
+
+        /**
+         * Returns distribution of timed call latencies in nanoseconds.
+         */
+        public LogLinearHistogram.Snapshot getLatencies() {
+            return latencies;
+        }
+
+    }
+
+}
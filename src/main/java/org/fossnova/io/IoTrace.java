@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * An <code>IoTrace</code> is a preallocated ring of I/O call records. Every record holds
+ * the operation, the requested size, the result of the call, its start time and its duration.
+ * Once the ring is full the oldest records are overwritten, so the trace always holds
+ * the most recent <B>capacity</B> calls. Recording never allocates.
+ * </P>
+ * <P>
+ * Traces are produced by {@link RecordingInputStream} and {@link RecordingOutputStream},
+ * persisted with {@link #writeTo(OutputStream)} in a compact variable length binary format,
+ * loaded with {@link #readFrom(InputStream)} and replayed with {@link IoTraceReplayer}.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class IoTrace {
+
+    /**
+     * Traced operation.
+     */
+    public enum Operation {
+
+        /**
+         * Read call.
+         */
+        READ,
+
+        /**
+         * Skip call.
+         */
+        SKIP,
+
+        /**
+         * Write call.
+         */
+        WRITE,
+
+        /**
+         * Flush call.
+         */
+        FLUSH
+
+    }
+
+    private static final int MAGIC = 0x464E5452;
+
+    private static final int VERSION = 1;
+
+    private static final int SEVEN_BITS = 0x7F;
+
+    private static final int CONTINUATION_BIT = 0x80;
+
+    private static final int VARINT_SHIFT = 7;
+
+    private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final byte[] operations;
+
+    private final int[] requested;
+
+    private final int[] results;
+
+    private final long[] starts;
+
+    private final long[] durations;
+
+    private long recorded;
+
+    /**
+     * Creates an <code>IoTrace</code>.
+     *
+     * @param capacity maximum number of records kept
+     */
+    public IoTrace( final int capacity ) {
+        // ensure preconditions
+        if ( capacity <= 0 ) {
+            throw new IllegalArgumentException( "Capacity must be positive" );
+        }
+        // initialize
+        operations = new byte[ capacity ];
+        requested = new int[ capacity ];
+        results = new int[ capacity ];
+        starts = new long[ capacity ];
+        durations = new long[ capacity ];
+    }
+
+    /**
+     * Returns maximum number of records kept.
+     *
+     * @return trace capacity
+     */
+    public int getCapacity() {
+        return operations.length;
+    }
+
+    /**
+     * Returns number of records available, at most {@link #getCapacity()}.
+     *
+     * @return number of records
+     */
+    public int size() {
+        return recorded < operations.length ? ( int ) recorded : operations.length;
+    }
+
+    /**
+     * Returns number of records ever recorded including the overwritten ones.
+     *
+     * @return number of recorded calls
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Returns operation of the record, index <code>0</code> denotes the oldest record available.
+     *
+     * @param index record index
+     * @return operation
+     */
+    public Operation getOperation( final int index ) {
+        return OPERATIONS[ operations[ slot( index ) ] ];
+    }
+
+    /**
+     * Returns number of bytes requested by the call.
+     *
+     * @param index record index
+     * @return requested size
+     */
+    public int getRequested( final int index ) {
+        return requested[ slot( index ) ];
+    }
+
+    /**
+     * Returns result of the call, i.e. number of bytes transferred or <code>-1</code> for end of stream.
+     *
+     * @param index record index
+     * @return call result
+     */
+    public int getResult( final int index ) {
+        return results[ slot( index ) ];
+    }
+
+    /**
+     * Returns <code>System.nanoTime()</code> value taken when the call started.
+     *
+     * @param index record index
+     * @return start time in nanoseconds
+     */
+    public long getStartNanos( final int index ) {
+        return starts[ slot( index ) ];
+    }
+
+    /**
+     * Returns duration of the call.
+     *
+     * @param index record index
+     * @return duration in nanoseconds
+     */
+    public long getDurationNanos( final int index ) {
+        return durations[ slot( index ) ];
+    }
+
+    /**
+     * Discards all records.
+     */
+    public void clear() {
+        recorded = 0;
+    }
+
+    /**
+     * Appends a record, overwriting the oldest one if the trace is full.
+     *
+     * @param operation traced operation
+     * @param requestedSize number of bytes requested
+     * @param result call result
+     * @param startNanos start time in nanoseconds
+     * @param durationNanos duration in nanoseconds
+     */
+    public void record( final Operation operation, final int requestedSize, final int result, final long startNanos, final long durationNanos ) {
+        final int slot = ( int ) ( recorded % operations.length );
+        operations[ slot ] = ( byte ) operation.ordinal();
+        requested[ slot ] = requestedSize;
+        results[ slot ] = result;
+        starts[ slot ] = startNanos;
+        durations[ slot ] = durationNanos;
+        recorded++;
+    }
+
+    /**
+     * Writes the available records to the stream. Sizes, start time deltas and durations
+     * are stored as variable length integers, so typical records take a few bytes only.
+     *
+     * @param os stream to write to, it is flushed but not closed
+     * @throws IOException if some I/O error occurs
+     */
+    public void writeTo( final OutputStream os ) throws IOException {
+        // ensure preconditions
+        if ( os == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        // method implementation
+        final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( os ) );
+        final int size = size();
+        out.writeInt( MAGIC );
+        out.writeByte( VERSION );
+        writeVarLong( out, size );
+        long previousStart = size > 0 ? getStartNanos( 0 ) : 0;
+        writeVarLong( out, zigZag( previousStart ) );
+        for ( int i = 0; i < size; i++ ) {
+            final long start = getStartNanos( i );
+            out.writeByte( operations[ slot( i ) ] );
+            writeVarLong( out, getRequested( i ) & UNSIGNED_INT_MASK );
+            writeVarLong( out, zigZag( getResult( i ) ) );
+            writeVarLong( out, zigZag( start - previousStart ) );
+            writeVarLong( out, zigZag( getDurationNanos( i ) ) );
+            previousStart = start;
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads trace previously written by {@link #writeTo(OutputStream)}.
+     *
+     * @param is stream to read from, it is not closed and should be buffered
+     * @return loaded trace with capacity equal to number of records stored
+     * @throws IOException if some I/O error occurs or the stream does not contain a trace
+     */
+    public static IoTrace readFrom( final InputStream is ) throws IOException {
+        // ensure preconditions
+        if ( is == null ) {
+            throw new IllegalArgumentException( "InputStream cannot be null" );
+        }
+        // method implementation
+        final DataInputStream in = new DataInputStream( is );
+        if ( in.readInt() != MAGIC || in.readUnsignedByte() != VERSION ) {
+            throw new IOException( "Not an I/O trace" );
+        }
+        final long size = readVarLong( in );
+        if ( size < 0 || size > Integer.MAX_VALUE ) {
+            throw new IOException( "Corrupted I/O trace" );
+        }
+        final IoTrace trace = new IoTrace( size == 0 ? 1 : ( int ) size );
+        long start = unZigZag( readVarLong( in ) );
+        for ( long i = 0; i < size; i++ ) {
+            final int operation = in.readUnsignedByte();
+            if ( operation >= OPERATIONS.length ) {
+                throw new IOException( "Corrupted I/O trace" );
+            }
+            final int requestedSize = ( int ) readVarLong( in );
+            final int result = ( int ) unZigZag( readVarLong( in ) );
+            start += unZigZag( readVarLong( in ) );
+            final long duration = unZigZag( readVarLong( in ) );
+            trace.record( OPERATIONS[ operation ], requestedSize, result, start, duration );
+        }
+        return trace;
+    }
+
+    private int slot( final int index ) {
+        if ( index < 0 || index >= size() ) {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size() );
+        }
+        return ( int ) ( ( recorded - size() + index ) % operations.length );
+    }
+
+    private static long zigZag( final long value ) {
+        return ( value << 1 ) ^ ( value >> ( Long.SIZE - 1 ) );
+    }
+
+    private static long unZigZag( final long value ) {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private static void writeVarLong( final DataOutputStream out, final long value ) throws IOException {
+        long remaining = value;
+        while ( ( remaining & ~( long ) SEVEN_BITS ) != 0 ) {
+            out.writeByte( ( int ) ( remaining & SEVEN_BITS ) | CONTINUATION_BIT );
+            remaining >>>= VARINT_SHIFT;
+        }
+        out.writeByte( ( int ) remaining );
+    }
+
+    private static long readVarLong( final DataInputStream in ) throws IOException {
+        long value = 0;
+        for ( int shift = 0; shift < Long.SIZE; shift += VARINT_SHIFT ) {
+            final int b = in.readUnsignedByte();
+            value |= ( long ) ( b & SEVEN_BITS ) << shift;
+            if ( ( b & CONTINUATION_BIT ) == 0 ) {
+                return value;
+            }
+        }
+        throw new IOException( "Corrupted I/O trace" );
+    }
+
+}
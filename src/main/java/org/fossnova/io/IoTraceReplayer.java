@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * An <code>IoTraceReplayer</code> drives a stream stack with the calls recorded in an {@link IoTrace}.
+ * Write and flush records are replayed against output streams, read and skip records against
+ * input streams, other records are ignored. The data buffer is allocated once, so replays
+ * themselves do not produce garbage and can be measured by a benchmark harness, e.g. JMH:
+ * </P>
+ * <pre>
+ * &#64;Setup public void setup() throws IOException {
+ *     replayer = new IoTraceReplayer( IoTrace.readFrom( traceStream ), false );
+ * }
+ *
+ * &#64;Benchmark public long replay() throws IOException {
+ *     return replayer.replay( new BufferedOutputStream( NullOutputStream.getInstance(), bufferSize ) );
+ * }
+ * </pre>
+ * <P>
+ * If paced, every call is issued no sooner than at its recorded offset from the first record,
+ * reproducing the recorded arrival rate. Otherwise calls are issued back to back.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class IoTraceReplayer {
+
+    private final IoTrace trace;
+
+    private final boolean paced;
+
+    private final byte[] buffer;
+
+    /**
+     * Creates an <code>IoTraceReplayer</code>.
+     *
+     * @param trace trace to be replayed
+     * @param paced whether to reproduce the recorded time offsets between calls
+     */
+    public IoTraceReplayer( final IoTrace trace, final boolean paced ) {
+        // ensure preconditions
+        if ( trace == null ) {
+            throw new IllegalArgumentException( "IoTrace cannot be null" );
+        }
+        // initialize
+        this.trace = trace;
+        this.paced = paced;
+        int maxSize = 1;
+        for ( int i = 0; i < trace.size(); i++ ) {
+            maxSize = Math.max( maxSize, trace.getRequested( i ) );
+        }
+        buffer = new byte[ maxSize ];
+    }
+
+    /**
+     * Returns replayed trace.
+     */
+    public IoTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Replays write and flush records against the stream. The stream is not closed.
+     *
+     * @param os output stream to be driven
+     * @return elapsed time in nanoseconds
+     * @throws IOException if some I/O error occurs
+     */
+    public long replay( final OutputStream os ) throws IOException {
+        // ensure preconditions
+        if ( os == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        // method implementation
+        final int size = trace.size();
+        final long origin = size > 0 ? trace.getStartNanos( 0 ) : 0;
+        final long begin = System.nanoTime();
+        for ( int i = 0; i < size; i++ ) {
+            final IoTrace.Operation operation = trace.getOperation( i );
+            if ( operation == IoTrace.Operation.WRITE ) {
+                pace( begin, trace.getStartNanos( i ) - origin );
+                final int length = trace.getRequested( i );
+                if ( length == 1 ) {
+                    os.write( 0 );
+                } else {
+                    os.write( buffer, 0, length );
+                }
+            } else if ( operation == IoTrace.Operation.FLUSH ) {
+                pace( begin, trace.getStartNanos( i ) - origin );
+                os.flush();
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * Replays read and skip records against the stream. The stream is not closed.
+     * Reads are issued with the recorded requested sizes regardless of what the stream returns.
+     *
+     * @param is input stream to be driven
+     * @return elapsed time in nanoseconds
+     * @throws IOException if some I/O error occurs
+     */
+    public long replay( final InputStream is ) throws IOException {
+        // ensure preconditions
+        if ( is == null ) {
+            throw new IllegalArgumentException( "InputStream cannot be null" );
+        }
+        // method implementation
+        final int size = trace.size();
+        final long origin = size > 0 ? trace.getStartNanos( 0 ) : 0;
+        final long begin = System.nanoTime();
+        for ( int i = 0; i < size; i++ ) {
+            final IoTrace.Operation operation = trace.getOperation( i );
+            if ( operation == IoTrace.Operation.READ ) {
+                pace( begin, trace.getStartNanos( i ) - origin );
+                final int length = trace.getRequested( i );
+                if ( length == 1 ) {
+                    is.read();
+                } else {
+                    is.read( buffer, 0, length );
+                }
+            } else if ( operation == IoTrace.Operation.SKIP ) {
+                pace( begin, trace.getStartNanos( i ) - origin );
+                is.skip( trace.getRequested( i ) );
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private void pace( final long begin, final long offset ) {
+        if ( !paced ) {
+            return;
+        }
+        long delay = begin + offset - System.nanoTime();
+        while ( delay > 0 ) {
+            LockSupport.parkNanos( delay );
+            delay = begin + offset - System.nanoTime();
+        }
+    }
+
+}
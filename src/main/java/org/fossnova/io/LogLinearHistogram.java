@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <P>
+ * A <code>LogLinearHistogram</code> counts non-negative values in fixed set of log-linear buckets.
+ * Values lower than 16 have their own bucket, every higher power of two range is split into
+ * 16 equally sized buckets, so the relative error of reported values is at most 1/16.
+ * Every bucket is a striped <code>LongAdder</code>, so threads recording into the same bucket
+ * don't contend. Recording allocates only the stripes a bucket creates on its first contention.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = ( Long.SIZE - SUB_BUCKET_BITS ) * SUB_BUCKET_COUNT;
+
+    private static final double PERCENT = 100.0;
+
+    private final LongAdder[] counts = new LongAdder[ BUCKET_COUNT ];
+
+    /**
+     * Creates an empty <code>LogLinearHistogram</code>.
+     */
+    public LogLinearHistogram() {
+        for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+            counts[ i ] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records single occurrence of the value. Negative values are recorded as zero.
+     *
+     * @param value value to record
+     */
+    public void record( final long value ) {
+        counts[ bucketOf( value ) ].increment();
+    }
+
+    /**
+     * Returns snapshot of the current bucket counts.
+     */
+    public Snapshot snapshot() {
+        final long[] copy = new long[ BUCKET_COUNT ];
+        for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+            copy[ i ] = counts[ i ].sum();
+        }
+        return new Snapshot( copy );
+    }
+
+    static int bucketOf( final long value ) {
+        if ( value < SUB_BUCKET_COUNT ) {
+            return value < 0 ? 0 : ( int ) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return ( shift + 1 ) * SUB_BUCKET_COUNT + ( int ) ( ( value >>> shift ) & ( SUB_BUCKET_COUNT - 1 ) );
+    }
+
+    static long lowerBoundOf( final int bucket ) {
+        if ( bucket < SUB_BUCKET_COUNT ) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKET_COUNT - 1;
+        return ( long ) ( SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT ) << shift;
+    }
+
+    /**
+     * Immutable copy of histogram bucket counts.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long totalCount;
+
+        private Snapshot( final long[] counts ) {
+            this.counts = counts;
+            long total = 0;
+            for ( final long count : counts ) {
+                total += count;
+            }
+            totalCount = total;
+        }
+
+        /**
+         * Returns number of buckets.
+         */
+        public int getBucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * Returns number of values recorded in the bucket.
+         *
+         * @param bucket bucket index
+         */
+        public long getCount( final int bucket ) {
+            return counts[ bucket ];
+        }
+
+        /**
+         * Returns the lowest value counted in the bucket.
+         *
+         * @param bucket bucket index
+         */
+        public long getLowerBound( final int bucket ) {
+            return lowerBoundOf( bucket );
+        }
+
+        /**
+         * Returns the highest value counted in the bucket.
+         *
+         * @param bucket bucket index
+         */
+        public long getUpperBound( final int bucket ) {
+            return bucket == counts.length - 1 ? Long.MAX_VALUE : lowerBoundOf( bucket + 1 ) - 1;
+        }
+
+        /**
+         * Returns number of all recorded values.
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns upper bound of the bucket containing the value at given percentile
+         * or zero if no value was recorded.
+         *
+         * @param percentile percentile in the range from 0 to 100
+         */
+        public long getValueAtPercentile( final double percentile ) {
+            if ( percentile < 0 || percentile > PERCENT ) {
+                throw new IllegalArgumentException( "Percentile must be in range <0, 100>" );
+            }
+            if ( totalCount == 0 ) {
+                return 0;
+            }
+            final long rank = Math.max( 1, ( long ) Math.ceil( percentile / PERCENT * totalCount ) );
+            long seen = 0;
+            for ( int i = 0; i < counts.length; i++ ) {
+                seen += counts[ i ];
+                if ( seen >= rank ) {
+                    return getUpperBound( i );
+                }
+            }
+            return getUpperBound( counts.length - 1 );
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <P>
+ * A <code>MeteredInputStream</code> records count, size and duration of all read and skip calls passing through it
+ * into {@link IoMetrics}. The metrics may be shared by many wrappers.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class MeteredInputStream extends DelegatingInputStream {
+
+    private final IoMetrics metrics;
+
+    /**
+     * Creates a <code>MeteredInputStream</code> timing every call.
+     *
+     * @param delegate the input stream to be metered
+     */
+    public MeteredInputStream( final InputStream delegate ) {
+        this( delegate, new IoMetrics() );
+    }
+
+    /**
+     * Creates a <code>MeteredInputStream</code>.
+     *
+     * @param delegate the input stream to be metered
+     * @param metrics metrics to record calls into
+     */
+    public MeteredInputStream( final InputStream delegate, final IoMetrics metrics ) {
+        // ensure preconditions
+        super( delegate );
+        if ( metrics == null ) {
+            throw new IllegalArgumentException( "IoMetrics cannot be null" );
+        }
+        // initialize
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns metrics this input stream records into.
+     */
+    public IoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read() throws IOException {
+        final long timestamp = metrics.begin();
+        final int retVal = super.read();
+        metrics.end( retVal != -1 ? 1 : 0, timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        final long timestamp = metrics.begin();
+        final int retVal = super.read( buffer );
+        metrics.end( retVal > 0 ? retVal : 0, timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        final long timestamp = metrics.begin();
+        final int retVal = super.read( buffer, offset, length );
+        metrics.end( retVal > 0 ? retVal : 0, timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        final long timestamp = metrics.begin();
+        final long retVal = super.skip( count );
+        metrics.end( retVal, timestamp );
+        return retVal;
+    }
+
+}
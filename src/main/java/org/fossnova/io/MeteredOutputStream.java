@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>MeteredOutputStream</code> records count, size and duration of all write calls passing through it
+ * into {@link IoMetrics}. The metrics may be shared by many wrappers.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class MeteredOutputStream extends DelegatingOutputStream {
+
+    private final IoMetrics metrics;
+
+    /**
+     * Creates a <code>MeteredOutputStream</code> timing every call.
+     *
+     * @param delegate the output stream to be metered
+     */
+    public MeteredOutputStream( final OutputStream delegate ) {
+        this( delegate, new IoMetrics() );
+    }
+
+    /**
+     * Creates a <code>MeteredOutputStream</code>.
+     *
+     * @param delegate the output stream to be metered
+     * @param metrics metrics to record calls into
+     */
+    public MeteredOutputStream( final OutputStream delegate, final IoMetrics metrics ) {
+        // ensure preconditions
+        super( delegate );
+        if ( metrics == null ) {
+            throw new IllegalArgumentException( "IoMetrics cannot be null" );
+        }
+        // initialize
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns metrics this output stream records into.
+     */
+    public IoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data );
+        metrics.end( 1, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data );
+        metrics.end( data.length, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data, offset, length );
+        metrics.end( length, timestamp );
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <P>
+ * A <code>MeteredWriter</code> records count, size and duration of all write and append calls passing through it
+ * into {@link IoMetrics}. The metrics may be shared by many wrappers.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class MeteredWriter extends DelegatingWriter {
+
+    private static final int NULL_LENGTH = "null".length();
+
+    private final IoMetrics metrics;
+
+    /**
+     * Creates a <code>MeteredWriter</code> timing every call.
+     *
+     * @param delegate the writer to be metered
+     */
+    public MeteredWriter( final Writer delegate ) {
+        this( delegate, new IoMetrics() );
+    }
+
+    /**
+     * Creates a <code>MeteredWriter</code>.
+     *
+     * @param delegate the writer to be metered
+     * @param metrics metrics to record calls into
+     */
+    public MeteredWriter( final Writer delegate, final IoMetrics metrics ) {
+        // ensure preconditions
+        super( delegate );
+        if ( metrics == null ) {
+            throw new IllegalArgumentException( "IoMetrics cannot be null" );
+        }
+        // initialize
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns metrics this writer records into.
+     */
+    public IoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data );
+        metrics.end( 1, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public void write( final char[] data ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data );
+        metrics.end( data.length, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public void write( final char[] data, final int offset, final int length ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data, offset, length );
+        metrics.end( length, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public void write( final String data ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data );
+        metrics.end( data.length(), timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public void write( final String data, final int offset, final int length ) throws IOException {
+        final long timestamp = metrics.begin();
+        super.write( data, offset, length );
+        metrics.end( length, timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public Writer append( final CharSequence data ) throws IOException {
+        final long timestamp = metrics.begin();
+        final Writer retVal = super.append( data );
+        metrics.end( data != null ? data.length() : NULL_LENGTH, timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public Writer append( final CharSequence data, final int start, final int end ) throws IOException {
+        final long timestamp = metrics.begin();
+        final Writer retVal = super.append( data, start, end );
+        metrics.end( end - start, timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped writer and records it.
+     */
+    @Override
+    public Writer append( final char data ) throws IOException {
+        final long timestamp = metrics.begin();
+        final Writer retVal = super.append( data );
+        metrics.end( 1, timestamp );
+        return retVal;
+    }
+
+}
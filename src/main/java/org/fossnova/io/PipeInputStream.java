@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * A <code>PipeInputStream</code> is the reading end of the in-process pipe. The writing end
+ * is {@link PipeOutputStream} connected to this stream. Data are passed through fixed size ring buffer
+ * without locking. Reader and writer block only if the ring is empty respectively full and are woken up
+ * by the other side as soon as the condition changes.
+ * </P>
+ * <P>
+ * This class represents the alternative to <code>java.io.PipedInputStream</code>.
+ * The pipe supports exactly one reading thread and one writing thread at a time.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class PipeInputStream extends InputStream {
+
+    private static final int DEFAULT_CAPACITY = 65536;
+
+    private final byte[] ring;
+
+    private final int mask;
+
+    private volatile long readPosition;
+
+    private volatile long writePosition;
+
+    private volatile Thread parkedReader;
+
+    private volatile Thread parkedWriter;
+
+    private volatile boolean readerClosed;
+
+    private volatile boolean writerClosed;
+
+    private boolean connected;
+
+    /**
+     * Creates a <code>PipeInputStream</code> with 64KB ring buffer.
+     */
+    public PipeInputStream() {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Creates a <code>PipeInputStream</code>.
+     *
+     * @param capacity ring capacity in bytes, must be power of two
+     */
+    public PipeInputStream( final int capacity ) {
+        // ensure preconditions
+        if ( capacity <= 0 || Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "Capacity must be positive power of two" );
+        }
+        // initialize
+        ring = new byte[ capacity ];
+        mask = capacity - 1;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read()} javadoc.
+     */
+    @Override
+    public int read() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( awaitData() == 0 ) {
+            return -1;
+        }
+        final long position = readPosition;
+        final int retVal = ring[ ( int ) position & mask ] & 0xFF;
+        consumed( position + 1 );
+        return retVal;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[])} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        final int available = awaitData();
+        if ( available == 0 ) {
+            return -1;
+        }
+        final long position = readPosition;
+        final int index = ( int ) position & mask;
+        final int count = Math.min( length, Math.min( available, ring.length - index ) );
+        System.arraycopy( ring, index, buffer, offset, count );
+        consumed( position + count );
+        return count;
+    }
+
+    /**
+     * See {@link java.io.InputStream#skip(long)} javadoc.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 ) {
+            return 0;
+        }
+        final int skipped = ( int ) Math.min( count, awaitData() );
+        consumed( readPosition + skipped );
+        return skipped;
+    }
+
+    /**
+     * See {@link java.io.InputStream#available()} javadoc.
+     */
+    @Override
+    public int available() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return ( int ) ( writePosition - readPosition );
+    }
+
+    /**
+     * Writes all data passing through the pipe to the given stream directly from the ring buffer until writer closes the pipe.
+     */
+    @Override
+    public long transferTo( final OutputStream out ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( out == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        // method implementation
+        long retVal = 0;
+        int available = awaitData();
+        while ( available > 0 ) {
+            final long position = readPosition;
+            final int index = ( int ) position & mask;
+            final int count = Math.min( available, ring.length - index );
+            out.write( ring, index, count );
+            consumed( position + count );
+            retVal += count;
+            available = awaitData();
+        }
+        return retVal;
+    }
+
+    /**
+     * Closes the pipe. Any further attempt to write to the pipe results in IOException.
+     */
+    @Override
+    public void close() throws IOException {
+        readerClosed = true;
+        LockSupport.unpark( parkedWriter );
+    }
+
+    synchronized void connect() throws IOException {
+        if ( connected ) {
+            throw new IOException( "Pipe already connected" );
+        }
+        connected = true;
+    }
+
+    void receive( final int data ) throws IOException {
+        final long position = writePosition;
+        awaitSpace();
+        ring[ ( int ) position & mask ] = ( byte ) data;
+        produced( position + 1 );
+    }
+
+    void receive( final byte[] data, final int offset, final int length ) throws IOException {
+        int done = 0;
+        while ( done < length ) {
+            final int free = awaitSpace();
+            final long position = writePosition;
+            final int index = ( int ) position & mask;
+            final int count = Math.min( length - done, Math.min( free, ring.length - index ) );
+            System.arraycopy( data, offset + done, ring, index, count );
+            produced( position + count );
+            done += count;
+        }
+    }
+
+    long receiveFrom( final InputStream in ) throws IOException {
+        long retVal = 0;
+        while ( true ) {
+            final int free = awaitSpace();
+            final long position = writePosition;
+            final int index = ( int ) position & mask;
+            final int count = in.read( ring, index, Math.min( free, ring.length - index ) );
+            if ( count == -1 ) {
+                return retVal;
+            }
+            produced( position + count );
+            retVal += count;
+        }
+    }
+
+    void wakeUpReader() {
+        LockSupport.unpark( parkedReader );
+    }
+
+    void closeWriter() {
+        writerClosed = true;
+        LockSupport.unpark( parkedReader );
+    }
+
+    private int awaitData() throws IOException {
+        int available = ( int ) ( writePosition - readPosition );
+        while ( available == 0 && !writerClosed ) {
+            parkedReader = Thread.currentThread();
+            available = ( int ) ( writePosition - readPosition );
+            if ( available == 0 && !writerClosed ) {
+                LockSupport.park( this );
+            }
+            parkedReader = null;
+            checkInterrupted();
+            available = ( int ) ( writePosition - readPosition );
+        }
+        return available;
+    }
+
+    private int awaitSpace() throws IOException {
+        int free = ring.length - ( int ) ( writePosition - readPosition );
+        while ( free == 0 && !readerClosed ) {
+            parkedWriter = Thread.currentThread();
+            free = ring.length - ( int ) ( writePosition - readPosition );
+            if ( free == 0 && !readerClosed ) {
+                LockSupport.park( this );
+            }
+            parkedWriter = null;
+            checkInterrupted();
+            free = ring.length - ( int ) ( writePosition - readPosition );
+        }
+        if ( readerClosed ) {
+            throw new IOException( "Pipe closed by reader" );
+        }
+        return free;
+    }
+
+    private void consumed( final long position ) {
+        readPosition = position;
+        final Thread writer = parkedWriter;
+        if ( writer != null ) {
+            LockSupport.unpark( writer );
+        }
+    }
+
+    private void produced( final long position ) {
+        writePosition = position;
+        final Thread reader = parkedReader;
+        if ( reader != null ) {
+            LockSupport.unpark( reader );
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if ( Thread.interrupted() ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting on pipe" );
+        }
+    }
+
+    private void ensureOpen() {
+        if ( readerClosed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
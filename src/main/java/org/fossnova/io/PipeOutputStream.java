@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>PipeOutputStream</code> is the writing end of the in-process pipe.
+ * All data written to it are available for reading from connected {@link PipeInputStream}.
+ * Closing this stream signals EOF to the reading end.
+ * </P>
+ * <P>
+ * This class represents the alternative to <code>java.io.PipedOutputStream</code>.
+ * The pipe supports exactly one reading thread and one writing thread at a time.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class PipeOutputStream extends OutputStream {
+
+    private final PipeInputStream sink;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>PipeOutputStream</code> connected to passed input stream.
+     *
+     * @param sink reading end of the pipe
+     * @throws IOException if reading end is already connected
+     */
+    public PipeOutputStream( final PipeInputStream sink ) throws IOException {
+        // ensure preconditions
+        if ( sink == null ) {
+            throw new IllegalArgumentException( "PipeInputStream cannot be null" );
+        }
+        // initialize
+        sink.connect();
+        this.sink = sink;
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        sink.receive( data );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        sink.receive( data, offset, length );
+    }
+
+    /**
+     * Reads all data from the given stream directly into the pipe ring buffer until EOF is reached.
+     *
+     * @param in stream to read from
+     * @return number of bytes transferred
+     * @throws IOException if some I/O error occurs or reading end has been closed
+     */
+    public long transferFrom( final InputStream in ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( in == null ) {
+            throw new IllegalArgumentException( "InputStream cannot be null" );
+        }
+        // method implementation
+        return sink.receiveFrom( in );
+    }
+
+    /**
+     * Wakes up the reader if it waits for data.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        sink.wakeUpReader();
+    }
+
+    /**
+     * Closes the pipe. The reader will receive EOF after all written data have been read.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            sink.closeWriter();
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
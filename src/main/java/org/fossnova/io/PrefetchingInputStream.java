@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * <P>
+ * A <code>PrefetchingInputStream</code> reads wrapped stream ahead in the background.
+ * While the caller processes data of the current buffer, background task fills the next
+ * free buffers, so the I/O of wrapped stream overlaps with the processing done by the caller.
+ * </P>
+ * <P>
+ * The background task is submitted to the <code>Executor</code> passed to the constructor
+ * (e.g. one creating virtual threads) or runs in its own daemon thread if no executor is specified.
+ * Errors of wrapped stream are reported to the caller by the read method that reaches them.
+ * The {@link #close()} method stops the background task, closes wrapped stream to abort
+ * its pending read and waits for the task termination.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class PrefetchingInputStream extends DelegatingInputStream {
+
+    private static final int DEFAULT_BUFFER_COUNT = 2;
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private static final Chunk STOP = new Chunk( 0 );
+
+    private final BlockingQueue<Chunk> free;
+
+    private final BlockingQueue<Chunk> filled;
+
+    private final CountDownLatch finished = new CountDownLatch( 1 );
+
+    private Chunk current;
+
+    private int position;
+
+    private boolean eof;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>PrefetchingInputStream</code> with two 64KB buffers filled by its own daemon thread.
+     *
+     * @param delegate input stream to be read ahead
+     */
+    public PrefetchingInputStream( final InputStream delegate ) {
+        this( delegate, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE, null );
+    }
+
+    /**
+     * Creates a <code>PrefetchingInputStream</code>.
+     *
+     * @param delegate input stream to be read ahead
+     * @param bufferCount number of buffers, at least two
+     * @param bufferSize size of every buffer
+     * @param executor executor running background task or <code>null</code> to use own daemon thread
+     */
+    public PrefetchingInputStream( final InputStream delegate, final int bufferCount, final int bufferSize, final Executor executor ) {
+        // ensure preconditions
+        super( delegate );
+        if ( bufferCount < 2 ) {
+            throw new IllegalArgumentException( "Buffer count must be at least two" );
+        }
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "Buffer size must be positive" );
+        }
+        // initialize
+        free = new ArrayBlockingQueue<Chunk>( bufferCount + 1 );
+        filled = new ArrayBlockingQueue<Chunk>( bufferCount + 1 );
+        for ( int i = 0; i < bufferCount; i++ ) {
+            free.add( new Chunk( bufferSize ) );
+        }
+        final Runnable task = new Prefetcher();
+        if ( executor != null ) {
+            executor.execute( task );
+        } else {
+            final Thread thread = new Thread( task, "PrefetchingInputStream prefetcher" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * See {@link java.io.InputStream#read()} javadoc.
+     */
+    @Override
+    public int read() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( !ensureData() ) {
+            return -1;
+        }
+        return current.buffer[ position++ ] & 0xFF;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[])} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        if ( !ensureData() ) {
+            return -1;
+        }
+        final int count = Math.min( length, current.length - position );
+        System.arraycopy( current.buffer, position, buffer, offset, count );
+        position += count;
+        return count;
+    }
+
+    /**
+     * See {@link java.io.InputStream#skip(long)} javadoc.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 || !ensureData() ) {
+            return 0;
+        }
+        final int skipped = ( int ) Math.min( count, current.length - position );
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns number of bytes available in the current buffer.
+     */
+    @Override
+    public int available() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return current != null ? current.length - position : 0;
+    }
+
+    /**
+     * Not supported on this stream implementation. Always returns <B>false</B>.
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Not supported on this stream implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void mark( final int readLimit ) {
+        throw new UnsupportedOperationException( "mark() not supported" );
+    }
+
+    /**
+     * Not supported on this stream implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void reset() throws IOException {
+        throw new UnsupportedOperationException( "reset() not supported" );
+    }
+
+    /**
+     * Stops background task, closes wrapped stream and waits for the task termination.
+     * The wrapped stream is closed first, so a pending read blocked on it (e.g. on a socket) is aborted.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            free.add( STOP );
+            try {
+                super.close();
+            } finally {
+                try {
+                    finished.await();
+                } catch ( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Interrupted while waiting for prefetching task" );
+                }
+            }
+        }
+    }
+
+    private boolean ensureData() throws IOException {
+        while ( current == null || position == current.length ) {
+            if ( eof ) {
+                return false;
+            }
+            if ( current != null ) {
+                free.add( current );
+                current = null;
+            }
+            final Chunk next;
+            try {
+                next = filled.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for prefetched data" );
+            }
+            if ( next.failure != null ) {
+                eof = true;
+                throw new IOException( "Prefetching failed", next.failure );
+            }
+            if ( next.length == -1 ) {
+                eof = true;
+                return false;
+            }
+            current = next;
+            position = 0;
+        }
+        return true;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    private static final class Chunk {
+
+        private final byte[] buffer;
+
+        private int length;
+
+        private IOException failure;
+
+        private Chunk( final int size ) {
+            buffer = new byte[ size ];
+        }
+
+    }
+
+    private final class Prefetcher implements Runnable {
+
+        @Override
+        public void run() {
+            IOException failure = null;
+            boolean terminated = false;
+            try {
+                while ( !terminated ) {
+                    final Chunk chunk = free.take();
+                    if ( chunk == STOP ) {
+                        terminated = true;
+                    } else {
+                        chunk.length = getDelegate().read( chunk.buffer, 0, chunk.buffer.length );
+                        filled.add( chunk );
+                        terminated = chunk.length == -1;
+                    }
+                }
+            } catch ( final IOException e ) {
+                failure = e;
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException( "Prefetching task interrupted" );
+            } finally {
+                if ( !terminated ) {
+                    final Chunk marker = new Chunk( 0 );
+                    marker.failure = failure != null ? failure : new IOException( "Prefetching task terminated unexpectedly" );
+                    filled.add( marker );
+                }
+                finished.countDown();
+            }
+        }
+
+    }
+
+}
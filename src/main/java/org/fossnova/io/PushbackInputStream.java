@@ -101,6 +101,7 @@ public final class PushbackInputStream extends DelegatingInputStream {
         // ensure preconditions
         ensureOpen();
         if ( pushPosition == 0 ) {
+            IoEvents.pushbackOverflow( this, pushBuffer.length, 1 );
             throw new IOException( "Pushback buffer is full" );
         }
         // the implementation
@@ -213,6 +214,7 @@ public final class PushbackInputStream extends DelegatingInputStream {
             return;
         }
         if ( length > pushPosition ) {
+            IoEvents.pushbackOverflow( this, pushBuffer.length, length );
             throw new IOException( "Pushback buffer is full" );
         }
         pushPosition -= length;
@@ -100,6 +100,7 @@ public final class PushbackReader extends DelegatingReader {
         // ensure preconditions
         ensureOpen();
         if ( pushPosition == 0 ) {
+            IoEvents.pushbackOverflow( this, pushBuffer.length, 1 );
             throw new IOException( "Push back buffer is full" );
         }
         // the implementation
@@ -212,6 +213,7 @@ public final class PushbackReader extends DelegatingReader {
             return;
         }
         if ( length > pushPosition ) {
+            IoEvents.pushbackOverflow( this, pushBuffer.length, length );
             throw new IOException( "Pushback buffer is full" );
         }
         pushPosition -= length;
@@ -259,23 +261,34 @@ public final class PushbackReader extends DelegatingReader {
         if ( buffer.remaining() == 0 ) {
             return 0;
         }
-        int returnValue = 0;
         if ( buffer.hasArray() ) {
             // reuse internal array
             final char[] data = buffer.array();
-            returnValue = read( data, buffer.position(), buffer.remaining() );
+            final int returnValue = read( data, buffer.arrayOffset() + buffer.position(), buffer.remaining() );
             if ( returnValue > 0 ) {
                 buffer.position( buffer.position() + returnValue );
             }
+            return returnValue;
+        }
+        int returnValue = 0;
+        // process pushBuffer first
+        if ( !isPushbackBufferEmpty() ) {
+            final int count = Math.min( buffer.remaining(), getPushbackBufferSize() );
+            buffer.put( pushBuffer, pushPosition, count );
+            pushPosition += count;
+            returnValue = count;
+        }
+        if ( buffer.remaining() == 0 ) {
+            // pushBuffer served method request completely
+            return returnValue;
+        }
+        // process delegate last
+        final int count = super.read( buffer );
+        if ( count == -1 ) {
+            return ( returnValue == 0 ) ? -1 : returnValue;
         } else {
-            // create temporary array
-            final char[] data = new char[ buffer.remaining() ];
-            returnValue = read( data );
-            if ( returnValue > 0 ) {
-                buffer.put( data, 0, returnValue );
-            }
+            return returnValue + count;
         }
-        return returnValue;
     }
 
     /**
@@ -297,18 +310,18 @@ public final class PushbackReader extends DelegatingReader {
             return;
         }
         if ( available > pushPosition ) {
+            IoEvents.pushbackOverflow( this, pushBuffer.length, available );
             throw new IOException( "Pushback buffer is full" );
         }
         if ( buffer.hasArray() ) {
             // reuse internal array
             final char[] data = buffer.array();
-            unread( data, buffer.position(), available );
+            unread( data, buffer.arrayOffset() + buffer.position(), available );
             buffer.position( buffer.position() + available );
         } else {
-            // create temporary array
-            final char[] data = new char[ available ];
-            buffer.get( data );
-            unread( data );
+            // copy directly into pushBuffer
+            pushPosition -= available;
+            buffer.get( pushBuffer, pushPosition, available );
         }
     }
 
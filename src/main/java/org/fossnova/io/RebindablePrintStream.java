@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.PrintStream;
+
+/**
+ * <P>
+ * A <code>RebindablePrintStream</code> is a {@link DelegatingPrintStream} whose wrapped
+ * print stream can be replaced at any time. Every <code>PrintStream</code> constructor
+ * allocates an encoder and a buffered writer (tens of KB) that delegating print streams
+ * never use, and no subclass can avoid that. Code creating a wrapper per request
+ * (e.g. to capture output) should create one <code>RebindablePrintStream</code> per thread
+ * or per pool slot and {@link #bind(PrintStream) bind} it to the request specific target instead.
+ * Binding allocates nothing.
+ * </P>
+ * <P>
+ * Unbound instance writes to {@link NullPrintStream}.
+ * </P>
+ * <p>
+ * This class is thread safe if the bound print streams are thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class RebindablePrintStream extends DelegatingPrintStream {
+
+    private volatile PrintStream target;
+
+    /**
+     * Creates an unbound <code>RebindablePrintStream</code>.
+     */
+    public RebindablePrintStream() {
+        this( NullPrintStream.getInstance() );
+    }
+
+    /**
+     * Creates a <code>RebindablePrintStream</code> bound to passed print stream.
+     *
+     * @param target the print stream to be wrapped
+     */
+    public RebindablePrintStream( final PrintStream target ) {
+        super( target );
+        this.target = target;
+    }
+
+    /**
+     * Binds this print stream to passed print stream. The previous one is neither flushed nor closed.
+     *
+     * @param target the print stream to be wrapped from now on
+     * @return previously bound print stream
+     */
+    public PrintStream bind( final PrintStream target ) {
+        // ensure preconditions
+        if ( target == null ) {
+            throw new IllegalArgumentException( "PrintStream cannot be null" );
+        }
+        // method implementation
+        final PrintStream previous = this.target;
+        this.target = target;
+        return previous;
+    }
+
+    /**
+     * Binds this print stream to {@link NullPrintStream}.
+     *
+     * @return previously bound print stream
+     */
+    public PrintStream unbind() {
+        return bind( NullPrintStream.getInstance() );
+    }
+
+    /**
+     * Returns currently bound print stream.
+     */
+    @Override
+    protected PrintStream getDelegate() {
+        return target;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+/**
+ * A <code>RecordKeyExtractor</code> computes the routing key of a record.
+ * Records with equal keys must produce equal hashes.
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public interface RecordKeyExtractor {
+
+    /**
+     * Returns hash of the key of the record stored in the <B>record</B> array.
+     * Implementations must not modify the array nor keep reference to it.
+     *
+     * @param record array holding the record payload
+     * @param offset start of the record payload
+     * @param length length of the record payload (without delimiter or length prefix)
+     * @return hash of the record key
+     */
+    int keyHash( byte[] record, int offset, int length );
+
+}
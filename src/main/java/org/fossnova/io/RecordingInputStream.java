@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <P>
+ * A <code>RecordingInputStream</code> records operation, size and timing of every read and skip call
+ * passing through it into an {@link IoTrace}. The trace can be persisted and replayed later
+ * with {@link IoTraceReplayer} to evaluate buffer sizes and wrapper stacks against real workloads.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class RecordingInputStream extends DelegatingInputStream {
+
+    private final IoTrace trace;
+
+    /**
+     * Creates a <code>RecordingInputStream</code>.
+     *
+     * @param delegate the input stream to be recorded
+     * @param trace trace to record calls into
+     */
+    public RecordingInputStream( final InputStream delegate, final IoTrace trace ) {
+        // ensure preconditions
+        super( delegate );
+        if ( trace == null ) {
+            throw new IllegalArgumentException( "IoTrace cannot be null" );
+        }
+        // initialize
+        this.trace = trace;
+    }
+
+    /**
+     * Returns trace this input stream records into.
+     */
+    public IoTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read() throws IOException {
+        final long timestamp = System.nanoTime();
+        final int retVal = super.read();
+        trace.record( IoTrace.Operation.READ, 1, retVal != -1 ? 1 : -1, timestamp, System.nanoTime() - timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        final long timestamp = System.nanoTime();
+        final int retVal = super.read( buffer );
+        trace.record( IoTrace.Operation.READ, buffer.length, retVal, timestamp, System.nanoTime() - timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        final long timestamp = System.nanoTime();
+        final int retVal = super.read( buffer, offset, length );
+        trace.record( IoTrace.Operation.READ, length, retVal, timestamp, System.nanoTime() - timestamp );
+        return retVal;
+    }
+
+    /**
+     * Delegates the call to the wrapped input stream and records it.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        final long timestamp = System.nanoTime();
+        final long retVal = super.skip( count );
+        trace.record( IoTrace.Operation.SKIP, ( int ) Math.min( count, Integer.MAX_VALUE ), ( int ) Math.min( retVal, Integer.MAX_VALUE ), timestamp, System.nanoTime() - timestamp );
+        return retVal;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>RecordingOutputStream</code> records operation, size and timing of every write and flush call
+ * passing through it into an {@link IoTrace}. The trace can be persisted and replayed later
+ * with {@link IoTraceReplayer} to evaluate buffer sizes and wrapper stacks against real workloads.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class RecordingOutputStream extends DelegatingOutputStream {
+
+    private final IoTrace trace;
+
+    /**
+     * Creates a <code>RecordingOutputStream</code>.
+     *
+     * @param delegate the output stream to be recorded
+     * @param trace trace to record calls into
+     */
+    public RecordingOutputStream( final OutputStream delegate, final IoTrace trace ) {
+        // ensure preconditions
+        super( delegate );
+        if ( trace == null ) {
+            throw new IllegalArgumentException( "IoTrace cannot be null" );
+        }
+        // initialize
+        this.trace = trace;
+    }
+
+    /**
+     * Returns trace this output stream records into.
+     */
+    public IoTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        final long timestamp = System.nanoTime();
+        super.write( data );
+        trace.record( IoTrace.Operation.WRITE, 1, 1, timestamp, System.nanoTime() - timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        final long timestamp = System.nanoTime();
+        super.write( data );
+        trace.record( IoTrace.Operation.WRITE, data.length, data.length, timestamp, System.nanoTime() - timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        final long timestamp = System.nanoTime();
+        super.write( data, offset, length );
+        trace.record( IoTrace.Operation.WRITE, length, length, timestamp, System.nanoTime() - timestamp );
+    }
+
+    /**
+     * Delegates the call to the wrapped output stream and records it.
+     */
+    @Override
+    public void flush() throws IOException {
+        final long timestamp = System.nanoTime();
+        super.flush();
+        trace.record( IoTrace.Operation.FLUSH, 0, 0, timestamp, System.nanoTime() - timestamp );
+    }
+
+}
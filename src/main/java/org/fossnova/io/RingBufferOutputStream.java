@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * A <code>RingBufferOutputStream</code> allows many threads to write into the fixed size ring buffer
+ * while single consumer thread drains the buffer to the wrapped stream. Producers claim their region
+ * of the ring with single atomic operation and copy their data in. The consumer writes all published
+ * regions to the wrapped stream with as few bulk writes as possible.
+ * </P>
+ * <P>
+ * Data written by single <B>write</B> call are never interleaved with data of other producers
+ * unless they are longer than ring capacity. If the ring is full producers wait according
+ * to the configured {@link WaitStrategy}, with {@link WaitStrategy#PARK} they are unparked by the consumer
+ * as soon as it frees space. The {@link #flush()} method blocks until all data written
+ * before the call have been written and flushed to the wrapped stream. Failure of the consumer thread
+ * is reported to producers by subsequent <B>write</B>, <B>flush</B> or <B>close</B> calls.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class RingBufferOutputStream extends DelegatingOutputStream {
+
+    private static final int DEFAULT_CAPACITY = 65536;
+
+    private static final int PUBLISH_SPINS = 100;
+
+    private final byte[] ring;
+
+    private final int mask;
+
+    private final WaitStrategy waitStrategy;
+
+    private final AtomicLong claimed = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong flushRequested = new AtomicLong();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final Thread consumer;
+
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+
+    private volatile long consumed;
+
+    private volatile long flushed;
+
+    private volatile boolean consumerParked;
+
+    private volatile boolean stopped;
+
+    private volatile IOException failure;
+
+    /**
+     * Creates a <code>RingBufferOutputStream</code> with default capacity and {@link WaitStrategy#PARK} strategy.
+     *
+     * @param delegate the output stream to be drained to
+     */
+    public RingBufferOutputStream( final OutputStream delegate ) {
+        this( delegate, DEFAULT_CAPACITY, WaitStrategy.PARK, null );
+    }
+
+    /**
+     * Creates a <code>RingBufferOutputStream</code>.
+     *
+     * @param delegate the output stream to be drained to
+     * @param capacity ring capacity in bytes, must be power of two
+     * @param waitStrategy how producers and consumer wait for each other
+     * @param threadFactory factory creating consumer thread or <code>null</code> to create daemon platform thread
+     */
+    public RingBufferOutputStream( final OutputStream delegate, final int capacity, final WaitStrategy waitStrategy, final ThreadFactory threadFactory ) {
+        // ensure preconditions
+        super( delegate );
+        if ( capacity <= 0 || Integer.bitCount( capacity ) != 1 ) {
+            throw new IllegalArgumentException( "Capacity must be positive power of two" );
+        }
+        if ( waitStrategy == null ) {
+            throw new IllegalArgumentException( "WaitStrategy cannot be null" );
+        }
+        // initialize
+        ring = new byte[ capacity ];
+        mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        final Runnable task = new Consumer();
+        if ( threadFactory != null ) {
+            consumer = threadFactory.newThread( task );
+        } else {
+            consumer = new Thread( task, "RingBufferOutputStream consumer" );
+            consumer.setDaemon( true );
+        }
+        consumer.start();
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final long start = claim( 1 );
+        ring[ ( int ) start & mask ] = ( byte ) data;
+        publish( start, 1 );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        int position = offset;
+        final int end = offset + length;
+        while ( position < end ) {
+            final int count = Math.min( ring.length, end - position );
+            final long start = claim( count );
+            copyIn( data, position, start, count );
+            publish( start, count );
+            position += count;
+        }
+    }
+
+    /**
+     * Writes the data only if the ring has free space for all of them at once, never waits.
+     *
+     * @param data the data
+     * @param offset the start offset in the data
+     * @param length the number of bytes to write
+     * @return <B>true</B> if the data have been written, <B>false</B> if the ring is too full
+     * @throws IOException if the consumer thread failed
+     */
+    public boolean tryWrite( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        checkFailure();
+        if ( length == 0 ) {
+            return true;
+        }
+        long start;
+        do {
+            start = claimed.get();
+            if ( start + length - consumed > ring.length ) {
+                return false;
+            }
+        } while ( !claimed.compareAndSet( start, start + length ) );
+        copyIn( data, offset, start, length );
+        publish( start, length );
+        return true;
+    }
+
+    /**
+     * Blocks until all data written before this call have been written and flushed to the wrapped stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final long target = published.get();
+        long requested;
+        do {
+            requested = flushRequested.get();
+        } while ( requested < target && !flushRequested.compareAndSet( requested, target ) );
+        LockSupport.unpark( consumer );
+        while ( flushed < target ) {
+            checkFailure();
+            if ( waitStrategy == WaitStrategy.PARK ) {
+                final Thread self = Thread.currentThread();
+                waiters.add( self );
+                if ( flushed < target && failure == null ) {
+                    LockSupport.park( this );
+                }
+                waiters.remove( self );
+            } else {
+                waitStrategy.idle();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Drains all written data to the wrapped stream, stops consumer thread and closes the wrapped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed.compareAndSet( false, true ) ) {
+            stopped = true;
+            LockSupport.unpark( consumer );
+            try {
+                consumer.join();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for consumer thread" );
+            }
+            try {
+                checkFailure();
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+    private long claim( final int count ) throws IOException {
+        long start;
+        do {
+            start = claimed.get();
+            while ( start + count - consumed > ring.length ) {
+                checkFailure();
+                if ( stopped ) {
+                    throw new IllegalStateException( "Stream is closed" );
+                }
+                if ( waitStrategy == WaitStrategy.PARK ) {
+                    // registered before the final check, so the consumer freeing space cannot miss this thread
+                    final Thread self = Thread.currentThread();
+                    waiters.add( self );
+                    if ( start + count - consumed > ring.length && failure == null && !stopped ) {
+                        LockSupport.park( this );
+                    }
+                    waiters.remove( self );
+                } else {
+                    waitStrategy.idle();
+                }
+                start = claimed.get();
+            }
+        } while ( !claimed.compareAndSet( start, start + count ) );
+        return start;
+    }
+
+    private void copyIn( final byte[] data, final int offset, final long start, final int count ) {
+        final int index = ( int ) start & mask;
+        final int first = Math.min( count, ring.length - index );
+        System.arraycopy( data, offset, ring, index, first );
+        if ( first < count ) {
+            System.arraycopy( data, offset + first, ring, 0, count - first );
+        }
+    }
+
+    private void publish( final long start, final int count ) {
+        // regions are published in claim order, predecessor may have been preempted
+        int spins = 0;
+        while ( published.get() != start ) {
+            if ( ++spins < PUBLISH_SPINS ) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        published.set( start + count );
+        if ( consumerParked ) {
+            LockSupport.unpark( consumer );
+        }
+    }
+
+    private boolean drain() throws IOException {
+        final long head = consumed;
+        final long tail = published.get();
+        if ( head == tail ) {
+            return false;
+        }
+        final int index = ( int ) head & mask;
+        final int count = ( int ) ( tail - head );
+        final int first = Math.min( count, ring.length - index );
+        getDelegate().write( ring, index, first );
+        if ( first < count ) {
+            getDelegate().write( ring, 0, count - first );
+        }
+        consumed = tail;
+        wakeWaiters();
+        return true;
+    }
+
+    private boolean flushIfRequested() throws IOException {
+        final long head = consumed;
+        if ( flushed < flushRequested.get() ) {
+            getDelegate().flush();
+            flushed = head;
+            wakeWaiters();
+            return true;
+        }
+        return false;
+    }
+
+    private void awaitData() {
+        if ( waitStrategy != WaitStrategy.PARK ) {
+            waitStrategy.idle();
+            return;
+        }
+        consumerParked = true;
+        if ( published.get() == consumed && flushed >= flushRequested.get() && !stopped ) {
+            LockSupport.park( this );
+        }
+        consumerParked = false;
+    }
+
+    private void wakeWaiters() {
+        if ( !waiters.isEmpty() ) {
+            for ( final Thread waiter : waiters ) {
+                LockSupport.unpark( waiter );
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if ( e != null ) {
+            throw new IOException( "Consumer thread failed", e );
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed.get() ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    private final class Consumer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                boolean last = false;
+                while ( true ) {
+                    final boolean drained = drain();
+                    final boolean flushedNow = flushIfRequested();
+                    if ( drained || flushedNow ) {
+                        continue;
+                    }
+                    if ( last ) {
+                        break;
+                    }
+                    // one more pass after stop was observed to drain concurrent publications
+                    last = stopped && published.get() == claimed.get();
+                    if ( !last ) {
+                        awaitData();
+                    }
+                }
+                getDelegate().flush();
+            } catch ( final IOException e ) {
+                failure = e;
+            } catch ( final Throwable t ) {
+                // unchecked failure must be reported too, producers would wait for free space forever
+                failure = new IOException( "Consumer thread failed unexpectedly", t );
+            } finally {
+                wakeWaiters();
+            }
+        }
+
+    }
+
+}
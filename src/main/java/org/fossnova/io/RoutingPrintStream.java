@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * <P>
+ * A <code>RoutingPrintStream</code> sends output of every thread to the print stream bound
+ * to that thread, or to the fallback print stream if there is none. Installed once as
+ * <code>System.out</code> or <code>System.err</code> it captures output of concurrently running
+ * tasks separately without swapping the system streams. Every task prints to its own sink,
+ * so tasks never contend with each other.
+ * </P>
+ * <P>
+ * Sinks are bound for the duration of a task by {@link #run(PrintStream, Runnable)} or
+ * {@link #call(PrintStream, Callable)}, which emulate scoped values on top of a <code>ThreadLocal</code>.
+ * If created as inheritable, threads started by the task inherit its sink.
+ * </P>
+ * <p>
+ * This class is thread safe if the sinks and the fallback are thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class RoutingPrintStream extends DelegatingPrintStream {
+
+    private final ThreadLocal<PrintStream> sinks;
+
+    private final PrintStream fallback;
+
+    private final boolean installed;
+
+    private final boolean err;
+
+    /**
+     * Creates a <code>RoutingPrintStream</code> whose sinks are not inherited by child threads.
+     *
+     * @param fallback print stream used by threads without bound sink
+     */
+    public RoutingPrintStream( final PrintStream fallback ) {
+        this( fallback, false );
+    }
+
+    /**
+     * Creates a <code>RoutingPrintStream</code>.
+     *
+     * @param fallback print stream used by threads without bound sink
+     * @param inheritable whether threads inherit the sink bound to the thread that started them
+     */
+    public RoutingPrintStream( final PrintStream fallback, final boolean inheritable ) {
+        this( fallback, inheritable, false, false );
+    }
+
+    private RoutingPrintStream( final PrintStream fallback, final boolean inheritable, final boolean installed, final boolean err ) {
+        super( fallback );
+        this.fallback = fallback;
+        this.sinks = inheritable ? new InheritableThreadLocal<>() : new ThreadLocal<>();
+        this.installed = installed;
+        this.err = err;
+    }
+
+    /**
+     * Replaces <code>System.out</code> with a <code>RoutingPrintStream</code> falling back to the current <code>System.out</code>.
+     *
+     * @param inheritable whether threads inherit the sink bound to the thread that started them
+     * @return installed stream
+     */
+    public static RoutingPrintStream installOut( final boolean inheritable ) {
+        synchronized ( RoutingPrintStream.class ) {
+            final RoutingPrintStream stream = new RoutingPrintStream( System.out, inheritable, true, false );
+            System.setOut( stream );
+            return stream;
+        }
+    }
+
+    /**
+     * Replaces <code>System.err</code> with a <code>RoutingPrintStream</code> falling back to the current <code>System.err</code>.
+     *
+     * @param inheritable whether threads inherit the sink bound to the thread that started them
+     * @return installed stream
+     */
+    public static RoutingPrintStream installErr( final boolean inheritable ) {
+        synchronized ( RoutingPrintStream.class ) {
+            final RoutingPrintStream stream = new RoutingPrintStream( System.err, inheritable, true, true );
+            System.setErr( stream );
+            return stream;
+        }
+    }
+
+    /**
+     * Restores the original <code>System.out</code> or <code>System.err</code> if this stream is still installed.
+     *
+     * @throws IllegalStateException if this stream was not created by an install method
+     */
+    public void uninstall() {
+        // ensure preconditions
+        if ( !installed ) {
+            throw new IllegalStateException( "Stream was not installed" );
+        }
+        // method implementation
+        synchronized ( RoutingPrintStream.class ) {
+            if ( err && System.err == this ) {
+                System.setErr( fallback );
+            } else if ( !err && System.out == this ) {
+                System.setOut( fallback );
+            }
+        }
+    }
+
+    /**
+     * Runs the task with its output routed to the sink. Previously bound sink is restored afterwards.
+     *
+     * @param sink print stream receiving output of current thread while the task runs
+     * @param task the task
+     */
+    public void run( final PrintStream sink, final Runnable task ) {
+        // ensure preconditions
+        if ( sink == null ) {
+            throw new IllegalArgumentException( "PrintStream cannot be null" );
+        }
+        if ( task == null ) {
+            throw new IllegalArgumentException( "Runnable cannot be null" );
+        }
+        // method implementation
+        final PrintStream previous = sinks.get();
+        sinks.set( sink );
+        try {
+            task.run();
+        } finally {
+            restore( previous );
+        }
+    }
+
+    /**
+     * Calls the task with its output routed to the sink. Previously bound sink is restored afterwards.
+     *
+     * @param <T> result type
+     * @param sink print stream receiving output of current thread while the task runs
+     * @param task the task
+     * @return result of the task
+     * @throws Exception if the task failed
+     */
+    public <T> T call( final PrintStream sink, final Callable<T> task ) throws Exception {
+        // ensure preconditions
+        if ( sink == null ) {
+            throw new IllegalArgumentException( "PrintStream cannot be null" );
+        }
+        if ( task == null ) {
+            throw new IllegalArgumentException( "Callable cannot be null" );
+        }
+        // method implementation
+        final PrintStream previous = sinks.get();
+        sinks.set( sink );
+        try {
+            return task.call();
+        } finally {
+            restore( previous );
+        }
+    }
+
+    /**
+     * Returns print stream used by threads without bound sink.
+     */
+    public PrintStream getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Returns the sink bound to current thread or the fallback.
+     */
+    @Override
+    protected PrintStream getDelegate() {
+        final PrintStream sink = sinks.get();
+        return sink != null ? sink : fallback;
+    }
+
+    private void restore( final PrintStream previous ) {
+        if ( previous != null ) {
+            sinks.set( previous );
+        } else {
+            // do not leave stale entries in pooled threads
+            sinks.remove();
+        }
+    }
+
+}
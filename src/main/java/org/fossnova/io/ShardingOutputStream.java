@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>ShardingOutputStream</code> splits the written stream of records among the wrapped output streams.
+ * Every record is routed to the shard selected by the hash of its key, so records with the same key
+ * always end up in the same output stream. Records are recognized either by the trailing delimiter
+ * byte (see {@link #delimited(byte, RecordKeyExtractor, int, OutputStream...)}) or by the four byte
+ * big-endian length prefix (see {@link #lengthPrefixed(RecordKeyExtractor, int, OutputStream...)}).
+ * Records are written to the shards unchanged, including their delimiter or length prefix.
+ * </P>
+ * <P>
+ * Every shard has its own write buffer, which is written to the shard in bulk once it is full
+ * or when this stream is flushed. Records may span any number of write calls. Parts of a record
+ * spanning write calls are collected up to the maximum record size, a longer record fails the write
+ * with <code>IOException</code> and every later write fails too, because the record boundaries are lost.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class ShardingOutputStream extends OutputStream {
+
+    private static final int PREFIX_LENGTH = 4;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final int BITS_PER_BYTE = 8;
+
+    private static final int HASH_MULTIPLIER = 31;
+
+    private static final int DEFAULT_MAX_RECORD_SIZE = 16777216;
+
+    private final OutputStream[] shards;
+
+    private final byte[][] buffers;
+
+    private final int[] counts;
+
+    private final RecordKeyExtractor extractor;
+
+    private final boolean lengthPrefixed;
+
+    private final byte delimiter;
+
+    private final int maxRecordSize;
+
+    private final byte[] single = new byte[ 1 ];
+
+    private byte[] pending = new byte[ 0 ];
+
+    private int pendingLength;
+
+    private boolean broken;
+
+    private boolean closed;
+
+    private ShardingOutputStream( final boolean lengthPrefixed, final byte delimiter, final RecordKeyExtractor extractor,
+            final int bufferSize, final int maxRecordSize, final OutputStream ... shards ) {
+        // ensure preconditions
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "Buffer size must be positive" );
+        }
+        if ( maxRecordSize <= PREFIX_LENGTH ) {
+            throw new IllegalArgumentException( "Maximum record size must be greater than " + PREFIX_LENGTH );
+        }
+        if ( shards == null || shards.length == 0 ) {
+            throw new IllegalArgumentException( "At least one OutputStream is required" );
+        }
+        for ( final OutputStream os : shards ) {
+            if ( os == null ) {
+                throw new IllegalArgumentException( "OutputStream cannot be null" );
+            }
+        }
+        // initialize
+        this.lengthPrefixed = lengthPrefixed;
+        this.delimiter = delimiter;
+        this.extractor = extractor;
+        this.maxRecordSize = maxRecordSize;
+        this.shards = shards.clone();
+        buffers = new byte[ shards.length ][ bufferSize ];
+        counts = new int[ shards.length ];
+    }
+
+    /**
+     * Creates a <code>ShardingOutputStream</code> of records terminated by the <B>delimiter</B> byte
+     * with maximum record size of 16MB.
+     *
+     * @param delimiter byte terminating every record
+     * @param extractor record key extractor or <code>null</code> to use the whole record as the key
+     * @param bufferSize size of the write buffer of every shard
+     * @param shards output streams to split the records among
+     * @return sharding output stream
+     * @throws <code>IllegalArgumentException</code> if no shard is passed or any shard is null
+     */
+    public static ShardingOutputStream delimited( final byte delimiter, final RecordKeyExtractor extractor, final int bufferSize,
+            final OutputStream ... shards ) {
+        return delimited( delimiter, extractor, bufferSize, DEFAULT_MAX_RECORD_SIZE, shards );
+    }
+
+    /**
+     * Creates a <code>ShardingOutputStream</code> of records terminated by the <B>delimiter</B> byte.
+     *
+     * @param delimiter byte terminating every record
+     * @param extractor record key extractor or <code>null</code> to use the whole record as the key
+     * @param bufferSize size of the write buffer of every shard
+     * @param maxRecordSize maximum size of record including its delimiter
+     * @param shards output streams to split the records among
+     * @return sharding output stream
+     * @throws <code>IllegalArgumentException</code> if no shard is passed or any shard is null
+     */
+    public static ShardingOutputStream delimited( final byte delimiter, final RecordKeyExtractor extractor, final int bufferSize,
+            final int maxRecordSize, final OutputStream ... shards ) {
+        return new ShardingOutputStream( false, delimiter, extractor, bufferSize, maxRecordSize, shards );
+    }
+
+    /**
+     * Creates a <code>ShardingOutputStream</code> of records preceded by four byte big-endian length of the record payload
+     * with maximum record size of 16MB.
+     *
+     * @param extractor record key extractor or <code>null</code> to use the whole record payload as the key
+     * @param bufferSize size of the write buffer of every shard
+     * @param shards output streams to split the records among
+     * @return sharding output stream
+     * @throws <code>IllegalArgumentException</code> if no shard is passed or any shard is null
+     */
+    public static ShardingOutputStream lengthPrefixed( final RecordKeyExtractor extractor, final int bufferSize, final OutputStream ... shards ) {
+        return lengthPrefixed( extractor, bufferSize, DEFAULT_MAX_RECORD_SIZE, shards );
+    }
+
+    /**
+     * Creates a <code>ShardingOutputStream</code> of records preceded by four byte big-endian length of the record payload.
+     *
+     * @param extractor record key extractor or <code>null</code> to use the whole record payload as the key
+     * @param bufferSize size of the write buffer of every shard
+     * @param maxRecordSize maximum size of record including its length prefix
+     * @param shards output streams to split the records among
+     * @return sharding output stream
+     * @throws <code>IllegalArgumentException</code> if no shard is passed or any shard is null
+     */
+    public static ShardingOutputStream lengthPrefixed( final RecordKeyExtractor extractor, final int bufferSize, final int maxRecordSize,
+            final OutputStream ... shards ) {
+        return new ShardingOutputStream( true, ( byte ) 0, extractor, bufferSize, maxRecordSize, shards );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        single[ 0 ] = ( byte ) data;
+        write( single, 0, 1 );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        if ( broken ) {
+            throw new IOException( "Record boundaries lost after oversized record" );
+        }
+        // method implementation
+        if ( lengthPrefixed ) {
+            writeLengthPrefixed( data, offset, offset + length );
+        } else {
+            writeDelimited( data, offset, offset + length );
+        }
+    }
+
+    /**
+     * Writes buffered complete records to the shards and flushes them.
+     * Incomplete trailing record stays buffered.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        for ( int i = 0; i < shards.length; i++ ) {
+            flushBuffer( i );
+            shards[ i ].flush();
+        }
+    }
+
+    /**
+     * Writes buffered records to the shards and closes them.
+     *
+     * @throws IOException if some I/O error occurs or the last record is incomplete
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            try {
+                for ( int i = 0; i < shards.length; i++ ) {
+                    flushBuffer( i );
+                }
+            } finally {
+                closed = true;
+                for ( final OutputStream shard : shards ) {
+                    shard.close();
+                }
+            }
+            if ( pendingLength > 0 ) {
+                throw new IOException( "Incomplete record of " + pendingLength + " bytes discarded" );
+            }
+        }
+    }
+
+    private void writeDelimited( final byte[] data, final int offset, final int end ) throws IOException {
+        int position = offset;
+        while ( position < end ) {
+            int index = position;
+            while ( index < end && data[ index ] != delimiter ) {
+                index++;
+            }
+            if ( index == end ) {
+                appendPending( data, position, end - position );
+                return;
+            }
+            if ( pendingLength == 0 ) {
+                route( data, position, index + 1 - position, position, index - position );
+            } else {
+                appendPending( data, position, index + 1 - position );
+                route( pending, 0, pendingLength, 0, pendingLength - 1 );
+                pendingLength = 0;
+            }
+            position = index + 1;
+        }
+    }
+
+    private void writeLengthPrefixed( final byte[] data, final int offset, final int end ) throws IOException {
+        int position = offset;
+        while ( position < end ) {
+            if ( pendingLength > 0 || end - position < PREFIX_LENGTH ) {
+                position += fillPending( data, position, end );
+                continue;
+            }
+            final int total = recordLength( data, position );
+            if ( end - position >= total ) {
+                route( data, position, total, position + PREFIX_LENGTH, total - PREFIX_LENGTH );
+                position += total;
+            } else {
+                appendPending( data, position, end - position );
+                position = end;
+            }
+        }
+    }
+
+    private int fillPending( final byte[] data, final int position, final int end ) throws IOException {
+        final int count;
+        if ( pendingLength < PREFIX_LENGTH ) {
+            count = Math.min( PREFIX_LENGTH - pendingLength, end - position );
+        } else {
+            count = Math.min( recordLength( pending, 0 ) - pendingLength, end - position );
+        }
+        appendPending( data, position, count );
+        if ( pendingLength >= PREFIX_LENGTH ) {
+            // complete record, including the empty one right after its prefix, is routed immediately
+            final int total = recordLength( pending, 0 );
+            if ( pendingLength == total ) {
+                route( pending, 0, total, PREFIX_LENGTH, total - PREFIX_LENGTH );
+                pendingLength = 0;
+            }
+        }
+        return count;
+    }
+
+    private void route( final byte[] data, final int offset, final int length, final int payloadOffset, final int payloadLength )
+            throws IOException {
+        final int hash = extractor != null ? extractor.keyHash( data, payloadOffset, payloadLength ) : hash( data, payloadOffset, payloadLength );
+        final int shard = Math.floorMod( hash, shards.length );
+        final byte[] buffer = buffers[ shard ];
+        if ( counts[ shard ] + length > buffer.length ) {
+            flushBuffer( shard );
+        }
+        if ( length > buffer.length ) {
+            shards[ shard ].write( data, offset, length );
+        } else {
+            System.arraycopy( data, offset, buffer, counts[ shard ], length );
+            counts[ shard ] += length;
+        }
+    }
+
+    private void flushBuffer( final int shard ) throws IOException {
+        if ( counts[ shard ] > 0 ) {
+            shards[ shard ].write( buffers[ shard ], 0, counts[ shard ] );
+            counts[ shard ] = 0;
+        }
+    }
+
+    private void appendPending( final byte[] data, final int offset, final int length ) throws IOException {
+        if ( pendingLength + length > maxRecordSize ) {
+            broken = true;
+            pendingLength = 0;
+            throw new IOException( "Record exceeds maximum size of " + maxRecordSize + " bytes" );
+        }
+        if ( pendingLength + length > pending.length ) {
+            final byte[] newPending = new byte[ Math.max( pendingLength + length, pending.length * 2 ) ];
+            System.arraycopy( pending, 0, newPending, 0, pendingLength );
+            pending = newPending;
+        }
+        System.arraycopy( data, offset, pending, pendingLength, length );
+        pendingLength += length;
+    }
+
+    private int recordLength( final byte[] data, final int offset ) throws IOException {
+        int payloadLength = 0;
+        for ( int i = 0; i < PREFIX_LENGTH; i++ ) {
+            payloadLength = ( payloadLength << BITS_PER_BYTE ) | ( data[ offset + i ] & BYTE_MASK );
+        }
+        if ( payloadLength < 0 ) {
+            broken = true;
+            pendingLength = 0;
+            throw new IOException( "Invalid record length: " + payloadLength );
+        }
+        if ( payloadLength > maxRecordSize - PREFIX_LENGTH ) {
+            broken = true;
+            pendingLength = 0;
+            throw new IOException( "Record exceeds maximum size of " + maxRecordSize + " bytes" );
+        }
+        return PREFIX_LENGTH + payloadLength;
+    }
+
+    private static int hash( final byte[] data, final int offset, final int length ) {
+        int retVal = 1;
+        for ( int i = offset; i < offset + length; i++ ) {
+            retVal = HASH_MULTIPLIER * retVal + data[ i ];
+        }
+        return retVal;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
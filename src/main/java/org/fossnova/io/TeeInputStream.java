@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>TeeInputStream</code> mirrors all bytes read from wrapped stream to one or more side streams.
+ * After each read the filled region of the caller's buffer is written to the side streams,
+ * so no additional copy of the data is made. Skipped bytes are read and mirrored too,
+ * so the side streams always receive exactly the bytes consumed from wrapped stream.
+ * </P>
+ * <P>
+ * Side streams are owned by the caller. They are flushed but not closed when this stream is closed.
+ * To mirror asynchronously wrap the side stream with {@link WriteBehindOutputStream}.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class TeeInputStream extends DelegatingInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final OutputStream[] sinks;
+
+    private byte[] skipBuffer;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>TeeInputStream</code> that mirrors wrapped input stream to passed output streams.
+     *
+     * @param delegate input stream to be mirrored
+     * @param sink output stream receiving the mirrored data
+     * @param others other output streams receiving the mirrored data
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public TeeInputStream( final InputStream delegate, final OutputStream sink, final OutputStream ... others ) {
+        // ensure preconditions
+        super( delegate );
+        if ( sink == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        if ( others != null && others.length > 0 ) {
+            for ( final OutputStream os : others ) {
+                if ( os == null ) {
+                    throw new IllegalArgumentException( "OutputStream cannot be null" );
+                }
+            }
+        }
+        // initialize
+        final int size = 1 + ( others != null ? others.length : 0 );
+        sinks = new OutputStream[ size ];
+        sinks[ 0 ] = sink;
+        if ( size > 1 ) {
+            System.arraycopy( others, 0, sinks, 1, others.length );
+        }
+    }
+
+    /**
+     * See {@link java.io.InputStream#read()} javadoc.
+     */
+    @Override
+    public int read() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final int retVal = super.read();
+        if ( retVal != -1 ) {
+            for ( final OutputStream sink : sinks ) {
+                sink.write( retVal );
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[])} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        final int readBytesCount = super.read( buffer, offset, length );
+        if ( readBytesCount > 0 ) {
+            for ( final OutputStream sink : sinks ) {
+                sink.write( buffer, offset, readBytesCount );
+            }
+        }
+        return readBytesCount;
+    }
+
+    /**
+     * Reads and mirrors up to <B>count</B> bytes. See {@link java.io.InputStream#skip(long)} javadoc.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 ) {
+            return 0;
+        }
+        if ( skipBuffer == null ) {
+            skipBuffer = new byte[ SKIP_BUFFER_SIZE ];
+        }
+        long remaining = count;
+        while ( remaining > 0 ) {
+            final int readBytesCount = read( skipBuffer, 0, ( int ) Math.min( remaining, skipBuffer.length ) );
+            if ( readBytesCount == -1 ) {
+                break;
+            }
+            remaining -= readBytesCount;
+        }
+        return count - remaining;
+    }
+
+    /**
+     * See {@link java.io.InputStream#available()} javadoc.
+     */
+    @Override
+    public int available() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return super.available();
+    }
+
+    /**
+     * Not supported on this stream implementation. Always returns <B>false</B>.
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Not supported on this stream implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void mark( final int readLimit ) {
+        throw new UnsupportedOperationException( "mark() not supported" );
+    }
+
+    /**
+     * Not supported on this stream implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void reset() throws IOException {
+        throw new UnsupportedOperationException( "reset() not supported" );
+    }
+
+    /**
+     * Closes wrapped input stream and flushes side streams.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                for ( final OutputStream sink : sinks ) {
+                    sink.flush();
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
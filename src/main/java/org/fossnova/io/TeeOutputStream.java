@@ -21,19 +21,37 @@ package org.fossnova.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A <code>TeeOutputStream</code> overrides all methods of <code>OutputStream</code>
  * and delegates their execution to the wrapped output streams.
  * <p>
- * This class is not thread safe.
+ * If created with an <code>Executor</code> the <B>flush</B> and <B>close</B> methods
+ * call all the wrapped output streams concurrently (e.g. one virtual thread per delegate),
+ * so the latency of these methods is the maximum instead of the sum of the delegate latencies.
+ * </p>
+ * <p>
+ * Wrapped output streams can be added and removed at any time, also concurrently with writes,
+ * via {@link #addDelegate(OutputStream)} and {@link #removeDelegate(OutputStream)}.
+ * The set of wrapped output streams is copied on every change and swapped atomically,
+ * so every write operation costs only one volatile read of the current set.
+ * </p>
+ * <p>
+ * Except for adding and removing of wrapped output streams this class is not thread safe.
  * </p>
  *
  * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
  */
 public final class TeeOutputStream extends OutputStream {
 
-    private final OutputStream[] delegates;
+    private static final AtomicReferenceFieldUpdater<TeeOutputStream, OutputStream[]> DELEGATES =
+        AtomicReferenceFieldUpdater.newUpdater( TeeOutputStream.class, OutputStream[].class, "delegates" );
+
+    private volatile OutputStream[] delegates;
+
+    private final Executor executor;
 
     /**
      * Creates a <code>TeeOutputStream</code> that wraps passed output streams.
@@ -41,6 +59,18 @@ public final class TeeOutputStream extends OutputStream {
      * @throws <code>IllegalArgumentException</code> if any parameter is null
      */
     public TeeOutputStream( final OutputStream first, final OutputStream second, final OutputStream ... others ) {
+        this( null, first, second, others );
+    }
+
+    /**
+     * Creates a <code>TeeOutputStream</code> that wraps passed output streams.
+     * The <B>flush</B> and <B>close</B> methods are run concurrently using passed executor.
+     *
+     * @param executor executor running <B>flush</B> and <B>close</B> calls of the wrapped output streams
+     *        or <code>null</code> to call them sequentially
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public TeeOutputStream( final Executor executor, final OutputStream first, final OutputStream second, final OutputStream ... others ) {
         // ensure preconditions
         if ( first == null || second == null ) {
             throw new IllegalArgumentException( "OutputStream cannot be null" );
@@ -54,14 +84,73 @@ public final class TeeOutputStream extends OutputStream {
         }
         // initialize
         final int size = 2 + ( others != null ? others.length : 0 );
-        delegates = new OutputStream[ size ];
-        delegates[ 0 ] = first;
-        delegates[ 1 ] = second;
+        this.executor = executor;
+        final OutputStream[] initial = new OutputStream[ size ];
+        initial[ 0 ] = first;
+        initial[ 1 ] = second;
         if ( size > 2 ) {
             for ( int i = 0; i < others.length; i++ ) {
-                delegates[ 2 + i ] = others[ i ];
+                initial[ 2 + i ] = others[ i ];
             }
         }
+        delegates = initial;
+    }
+
+    /**
+     * Adds output stream to the set of wrapped output streams.
+     * It will receive data of all write operations started after this method returned.
+     *
+     * @param delegate output stream to be added
+     * @throws <code>IllegalArgumentException</code> if parameter is null
+     */
+    public void addDelegate( final OutputStream delegate ) {
+        // ensure preconditions
+        if ( delegate == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        // method implementation
+        OutputStream[] oldDelegates;
+        OutputStream[] newDelegates;
+        do {
+            oldDelegates = delegates;
+            newDelegates = new OutputStream[ oldDelegates.length + 1 ];
+            System.arraycopy( oldDelegates, 0, newDelegates, 0, oldDelegates.length );
+            newDelegates[ oldDelegates.length ] = delegate;
+        } while ( !DELEGATES.compareAndSet( this, oldDelegates, newDelegates ) );
+    }
+
+    /**
+     * Removes output stream from the set of wrapped output streams and flushes it.
+     * Write operations started after this method returned will not reach the removed stream.
+     * The removed stream is not closed, the caller takes over its ownership.
+     * A write operation running concurrently with the removal may still complete
+     * on the removed stream. Callers that must not lose such data should flush
+     * the removed stream once more after the concurrent write has completed.
+     *
+     * @param delegate output stream to be removed
+     * @return <code>true</code> if the output stream was removed, <code>false</code> if it was not wrapped
+     * @throws IOException if flushing of removed output stream failed
+     */
+    public boolean removeDelegate( final OutputStream delegate ) throws IOException {
+        // ensure preconditions
+        if ( delegate == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        // method implementation
+        OutputStream[] oldDelegates;
+        OutputStream[] newDelegates;
+        do {
+            oldDelegates = delegates;
+            final int index = indexOf( oldDelegates, delegate );
+            if ( index == -1 ) {
+                return false;
+            }
+            newDelegates = new OutputStream[ oldDelegates.length - 1 ];
+            System.arraycopy( oldDelegates, 0, newDelegates, 0, index );
+            System.arraycopy( oldDelegates, index + 1, newDelegates, index, newDelegates.length - index );
+        } while ( !DELEGATES.compareAndSet( this, oldDelegates, newDelegates ) );
+        delegate.flush();
+        return true;
     }
 
     /**
@@ -69,6 +158,7 @@ public final class TeeOutputStream extends OutputStream {
      */
     @Override
     public void write( final int data ) throws IOException {
+        // single byte path is left uninstrumented
         for ( final OutputStream delegate : delegates ) {
             delegate.write( data );
         }
@@ -79,8 +169,13 @@ public final class TeeOutputStream extends OutputStream {
      */
     @Override
     public void write( final byte[] data ) throws IOException {
-        for ( final OutputStream delegate : delegates ) {
-            delegate.write( data );
+        final OutputStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -89,8 +184,13 @@ public final class TeeOutputStream extends OutputStream {
      */
     @Override
     public void write( final byte[] data, final int offset, final int length ) throws IOException {
-        for ( final OutputStream delegate : delegates ) {
-            delegate.write( data, offset, length );
+        final OutputStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data, offset, length );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -99,8 +199,17 @@ public final class TeeOutputStream extends OutputStream {
      */
     @Override
     public void flush() throws IOException {
-        for ( final OutputStream delegate : delegates ) {
-            delegate.flush();
+        if ( executor != null ) {
+            FanOut.flush( executor, delegates );
+            return;
+        }
+        final OutputStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].flush();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "flush" );
+            }
         }
     }
 
@@ -109,9 +218,27 @@ public final class TeeOutputStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
-        for ( final OutputStream delegate : delegates ) {
-            delegate.close();
+        if ( executor != null ) {
+            FanOut.close( executor, delegates );
+            return;
+        }
+        final OutputStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].close();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "close" );
+            }
+        }
+    }
+
+    private static int indexOf( final OutputStream[] array, final OutputStream delegate ) {
+        for ( int i = 0; i < array.length; i++ ) {
+            if ( array[ i ] == delegate ) {
+                return i;
+            }
         }
+        return -1;
     }
 
 }
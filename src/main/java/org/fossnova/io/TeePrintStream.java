@@ -22,12 +22,19 @@ package org.fossnova.io;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.Formatter;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 /**
  * A <code>TeePrintStream</code> overrides all methods of <code>PrintStream</code>
  * and delegates their execution to the wrapped print streams.
  * <p>
+ * If created with an <code>Executor</code> the <B>flush</B> and <B>close</B> methods
+ * call all the wrapped print streams concurrently (e.g. one virtual thread per delegate),
+ * so the latency of these methods is the maximum instead of the sum of the delegate latencies.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -37,12 +44,30 @@ public final class TeePrintStream extends PrintStream {
 
     private final PrintStream[] delegates;
 
+    private final Executor executor;
+
+    private StringBuilder formatBuffer;
+
+    private Formatter formatter;
+
     /**
      * Creates a <code>DelegatingPrintStream</code> that wraps passed print streams.
      *
      * @throws <code>IllegalArgumentException</code> if parameter is null
      */
     public TeePrintStream( final PrintStream first, final PrintStream second, final PrintStream ... others ) {
+        this( null, first, second, others );
+    }
+
+    /**
+     * Creates a <code>DelegatingPrintStream</code> that wraps passed print streams.
+     * The <B>flush</B> and <B>close</B> methods are run concurrently using passed executor.
+     *
+     * @param executor executor running <B>flush</B> and <B>close</B> calls of the wrapped print streams
+     *        or <code>null</code> to call them sequentially
+     * @throws <code>IllegalArgumentException</code> if parameter is null
+     */
+    public TeePrintStream( final Executor executor, final PrintStream first, final PrintStream second, final PrintStream ... others ) {
         super( NullOutputStream.getInstance() );
         // ensure preconditions
         if ( first == null || second == null ) {
@@ -57,6 +82,7 @@ public final class TeePrintStream extends PrintStream {
         }
         // initialize
         final int size = 2 + ( others != null ? others.length : 0 );
+        this.executor = executor;
         delegates = new PrintStream[ size ];
         delegates[ 0 ] = first;
         delegates[ 1 ] = second;
@@ -72,8 +98,21 @@ public final class TeePrintStream extends PrintStream {
      */
     @Override
     public void flush() {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.flush();
+        if ( executor != null ) {
+            try {
+                FanOut.flush( executor, delegates );
+            } catch ( final IOException e ) {
+                setError();
+            }
+            return;
+        }
+        final PrintStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].flush();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "flush" );
+            }
         }
     }
 
@@ -82,8 +121,21 @@ public final class TeePrintStream extends PrintStream {
      */
     @Override
     public void close() {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.close();
+        if ( executor != null ) {
+            try {
+                FanOut.close( executor, delegates );
+            } catch ( final IOException e ) {
+                setError();
+            }
+            return;
+        }
+        final PrintStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].close();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "close" );
+            }
         }
     }
 
@@ -115,8 +167,13 @@ public final class TeePrintStream extends PrintStream {
      */
     @Override
     public void write( final byte[] data, final int offset, final int length ) {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.write( data, offset, length );
+        final PrintStream[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data, offset, length );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -311,45 +368,43 @@ public final class TeePrintStream extends PrintStream {
     }
 
     /**
-     * Delegates the call to the wrapped print streams.
+     * Formats the message once and writes the result to the wrapped print streams.
      */
     @Override
     public PrintStream printf( final String format, final Object ... args ) {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.printf( format, args );
-        }
-        return this;
+        return format( Locale.getDefault( Locale.Category.FORMAT ), format, args );
     }
 
     /**
-     * Delegates the call to the wrapped print streams.
+     * Formats the message once and writes the result to the wrapped print streams.
      */
     @Override
     public PrintStream printf( final Locale locale, final String format, final Object ... args ) {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.printf( locale, format, args );
-        }
-        return this;
+        return format( locale, format, args );
     }
 
     /**
-     * Delegates the call to the wrapped print streams.
+     * Formats the message once and writes the result to the wrapped print streams.
      */
     @Override
     public PrintStream format( final String format, final Object ... args ) {
-        for ( final PrintStream delegate : delegates ) {
-            delegate.format( format, args );
-        }
-        return this;
+        return format( Locale.getDefault( Locale.Category.FORMAT ), format, args );
     }
 
     /**
-     * Delegates the call to the wrapped print streams.
+     * Formats the message once and writes the result to the wrapped print streams.
      */
     @Override
     public PrintStream format( final Locale locale, final String format, final Object ... args ) {
+        if ( formatter == null ) {
+            formatBuffer = new StringBuilder();
+            formatter = new Formatter( formatBuffer );
+        }
+        formatBuffer.setLength( 0 );
+        formatter.format( locale, format, args );
+        final String formatted = formatBuffer.toString();
         for ( final PrintStream delegate : delegates ) {
-            delegate.format( locale, format, args );
+            delegate.print( formatted );
         }
         return this;
     }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * <P>
+ * A <code>TeeReader</code> mirrors all characters read from wrapped reader to one or more side writers.
+ * After each read the filled region of the caller's buffer is written to the side writers,
+ * so no additional copy of the data is made. Skipped characters are read and mirrored too,
+ * so the side writers always receive exactly the characters consumed from wrapped reader.
+ * </P>
+ * <P>
+ * Side writers are owned by the caller. They are flushed but not closed when this reader is closed.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class TeeReader extends DelegatingReader {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final Writer[] sinks;
+
+    private char[] skipBuffer;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>TeeReader</code> that mirrors wrapped reader to passed writers.
+     *
+     * @param delegate reader to be mirrored
+     * @param sink writer receiving the mirrored data
+     * @param others other writers receiving the mirrored data
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public TeeReader( final Reader delegate, final Writer sink, final Writer ... others ) {
+        // ensure preconditions
+        super( delegate );
+        if ( sink == null ) {
+            throw new IllegalArgumentException( "Writer cannot be null" );
+        }
+        if ( others != null && others.length > 0 ) {
+            for ( final Writer w : others ) {
+                if ( w == null ) {
+                    throw new IllegalArgumentException( "Writer cannot be null" );
+                }
+            }
+        }
+        // initialize
+        final int size = 1 + ( others != null ? others.length : 0 );
+        sinks = new Writer[ size ];
+        sinks[ 0 ] = sink;
+        if ( size > 1 ) {
+            System.arraycopy( others, 0, sinks, 1, others.length );
+        }
+    }
+
+    /**
+     * See {@link java.io.Reader#read()} javadoc.
+     */
+    @Override
+    public int read() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final int retVal = super.read();
+        if ( retVal != -1 ) {
+            for ( final Writer sink : sinks ) {
+                sink.write( retVal );
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * See {@link java.io.Reader#read(char[])} javadoc.
+     */
+    @Override
+    public int read( final char[] buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.Reader#read(char[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final char[] buffer, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        final int readCharsCount = super.read( buffer, offset, length );
+        if ( readCharsCount > 0 ) {
+            for ( final Writer sink : sinks ) {
+                sink.write( buffer, offset, readCharsCount );
+            }
+        }
+        return readCharsCount;
+    }
+
+    /**
+     * See {@link java.io.Reader#read(CharBuffer)} javadoc.
+     */
+    @Override
+    public int read( final CharBuffer buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // method implementation
+        if ( buffer.remaining() == 0 ) {
+            return 0;
+        }
+        if ( buffer.hasArray() ) {
+            // reuse internal array
+            final int retVal = read( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+            if ( retVal > 0 ) {
+                buffer.position( buffer.position() + retVal );
+            }
+            return retVal;
+        }
+        final int start = buffer.position();
+        final int retVal = super.read( buffer );
+        if ( retVal > 0 ) {
+            final CharBuffer filled = buffer.duplicate().position( start );
+            for ( final Writer sink : sinks ) {
+                sink.append( filled, 0, retVal );
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * Reads and mirrors up to <B>count</B> characters. See {@link java.io.Reader#skip(long)} javadoc.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 ) {
+            return 0;
+        }
+        if ( skipBuffer == null ) {
+            skipBuffer = new char[ SKIP_BUFFER_SIZE ];
+        }
+        long remaining = count;
+        while ( remaining > 0 ) {
+            final int readCharsCount = read( skipBuffer, 0, ( int ) Math.min( remaining, skipBuffer.length ) );
+            if ( readCharsCount == -1 ) {
+                break;
+            }
+            remaining -= readCharsCount;
+        }
+        return count - remaining;
+    }
+
+    /**
+     * See {@link java.io.Reader#ready()} javadoc.
+     */
+    @Override
+    public boolean ready() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return super.ready();
+    }
+
+    /**
+     * Not supported on this reader implementation. Always returns <B>false</B>.
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Not supported on this reader implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void mark( final int readLimit ) {
+        throw new UnsupportedOperationException( "mark() not supported" );
+    }
+
+    /**
+     * Not supported on this reader implementation. Always throws <B>UnsupportedOperationException</B>.
+     */
+    @Override
+    public void reset() throws IOException {
+        throw new UnsupportedOperationException( "reset() not supported" );
+    }
+
+    /**
+     * Closes wrapped reader and flushes side writers.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                for ( final Writer sink : sinks ) {
+                    sink.flush();
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Reader is closed" );
+        }
+    }
+
+}
@@ -21,11 +21,17 @@ package org.fossnova.io;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.concurrent.Executor;
 
 /**
  * A <code>TeeWriter</code> overrides all methods of <code>Writer</code>
  * and delegates their execution to the wrapped writers.
  * <p>
+ * If created with an <code>Executor</code> the <B>flush</B> and <B>close</B> methods
+ * call all the wrapped writers concurrently (e.g. one virtual thread per delegate),
+ * so the latency of these methods is the maximum instead of the sum of the delegate latencies.
+ * </p>
+ * <p>
  * This class is not thread safe.
  * </p>
  *
@@ -35,12 +41,26 @@ public final class TeeWriter extends Writer {
 
     private final Writer[] delegates;
 
+    private final Executor executor;
+
     /**
      * Creates a <code>TeeWriter</code> that wraps passed writers.
      *
      * @throws <code>IllegalArgumentException</code> if any parameter is null
      */
     public TeeWriter( final Writer first, final Writer second, final Writer ... others ) {
+        this( null, first, second, others );
+    }
+
+    /**
+     * Creates a <code>TeeWriter</code> that wraps passed writers.
+     * The <B>flush</B> and <B>close</B> methods are run concurrently using passed executor.
+     *
+     * @param executor executor running <B>flush</B> and <B>close</B> calls of the wrapped writers
+     *        or <code>null</code> to call them sequentially
+     * @throws <code>IllegalArgumentException</code> if any parameter is null
+     */
+    public TeeWriter( final Executor executor, final Writer first, final Writer second, final Writer ... others ) {
         // ensure preconditions
         if ( first == null || second == null ) {
             throw new IllegalArgumentException( "Writer cannot be null" );
@@ -54,6 +74,7 @@ public final class TeeWriter extends Writer {
         }
         // initialize
         final int size = 2 + ( others != null ? others.length : 0 );
+        this.executor = executor;
         delegates = new Writer[ size ];
         delegates[ 0 ] = first;
         delegates[ 1 ] = second;
@@ -69,6 +90,7 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void write( final int data ) throws IOException {
+        // single character path is left uninstrumented
         for ( final Writer delegate : delegates ) {
             delegate.write( data );
         }
@@ -79,8 +101,13 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void write( final char[] data ) throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.write( data );
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -89,8 +116,13 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void write( final char[] data, final int offset, final int length ) throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.write( data, offset, length );
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data, offset, length );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -99,8 +131,13 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void write( final String data ) throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.write( data );
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -109,8 +146,13 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void write( final String data, final int offset, final int length ) throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.write( data, offset, length );
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].write( data, offset, length );
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "write" );
+            }
         }
     }
 
@@ -152,8 +194,17 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void flush() throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.flush();
+        if ( executor != null ) {
+            FanOut.flush( executor, delegates );
+            return;
+        }
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].flush();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "flush" );
+            }
         }
     }
 
@@ -162,8 +213,17 @@ public final class TeeWriter extends Writer {
      */
     @Override
     public void close() throws IOException {
-        for ( final Writer delegate : delegates ) {
-            delegate.close();
+        if ( executor != null ) {
+            FanOut.close( executor, delegates );
+            return;
+        }
+        final Writer[] current = delegates;
+        for ( int i = 0; i < current.length; i++ ) {
+            final IoEvents.SlowDelegateEvent event = IoEvents.beginDelegate();
+            current[ i ].close();
+            if ( event != null ) {
+                event.end( this, current[ i ], i, "close" );
+            }
         }
     }
 
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <P>
+ * A <code>ThrottledInputStream</code> limits the number of bytes per second read from wrapped stream.
+ * The rate is controlled by a {@link TokenBucket} which may be shared among many streams.
+ * Bulk reads and skips are performed in slices so the data are delivered smoothly over time.
+ * Skipped bytes are charged to the bucket as if they were read.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class ThrottledInputStream extends DelegatingInputStream {
+
+    private static final int DEFAULT_SLICE_SIZE = 8192;
+
+    private final TokenBucket bucket;
+
+    private final int sliceSize;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>ThrottledInputStream</code> with default slice size.
+     *
+     * @param delegate input stream to be throttled
+     * @param bucket token bucket controlling the rate
+     */
+    public ThrottledInputStream( final InputStream delegate, final TokenBucket bucket ) {
+        this( delegate, bucket, DEFAULT_SLICE_SIZE );
+    }
+
+    /**
+     * Creates a <code>ThrottledInputStream</code>.
+     *
+     * @param delegate input stream to be throttled
+     * @param bucket token bucket controlling the rate
+     * @param sliceSize maximum number of bytes read from wrapped stream at once
+     */
+    public ThrottledInputStream( final InputStream delegate, final TokenBucket bucket, final int sliceSize ) {
+        // ensure preconditions
+        super( delegate );
+        if ( bucket == null ) {
+            throw new IllegalArgumentException( "TokenBucket cannot be null" );
+        }
+        if ( sliceSize <= 0 ) {
+            throw new IllegalArgumentException( "Slice size must be positive" );
+        }
+        // initialize
+        this.bucket = bucket;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read()} javadoc.
+     */
+    @Override
+    public int read() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        final int retVal = super.read();
+        if ( retVal != -1 ) {
+            bucket.acquire( 1 );
+        }
+        return retVal;
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[])} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        return read( buffer, 0, buffer.length );
+    }
+
+    /**
+     * See {@link java.io.InputStream#read(byte[], int, int)} javadoc.
+     */
+    @Override
+    public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( buffer == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( buffer.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        if ( length == 0 ) {
+            return 0;
+        }
+        final int readBytesCount = super.read( buffer, offset, Math.min( length, sliceSize ) );
+        if ( readBytesCount > 0 ) {
+            bucket.acquire( readBytesCount );
+        }
+        return readBytesCount;
+    }
+
+    /**
+     * See {@link java.io.InputStream#skip(long)} javadoc.
+     */
+    @Override
+    public long skip( final long count ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        if ( count <= 0 ) {
+            return 0;
+        }
+        final long skippedBytesCount = super.skip( Math.min( count, sliceSize ) );
+        if ( skippedBytesCount > 0 ) {
+            bucket.acquire( ( int ) skippedBytesCount );
+        }
+        return skippedBytesCount;
+    }
+
+    /**
+     * See {@link java.io.InputStream#available()} javadoc.
+     */
+    @Override
+    public int available() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        return super.available();
+    }
+
+    /**
+     * See {@link java.io.InputStream#close()} javadoc.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            super.close();
+        }
+    }
+
+    /**
+     * Returns token bucket controlling the rate of this stream.
+     */
+    public TokenBucket getBucket() {
+        return bucket;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
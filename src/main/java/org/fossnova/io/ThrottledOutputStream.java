@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <P>
+ * A <code>ThrottledOutputStream</code> limits the number of bytes per second written to wrapped stream.
+ * The rate is controlled by a {@link TokenBucket} which may be shared among many streams.
+ * Bulk writes are split into slices and every slice waits for its tokens, so large writes
+ * are smoothed over time instead of being released in one burst.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class ThrottledOutputStream extends DelegatingOutputStream {
+
+    private static final int DEFAULT_SLICE_SIZE = 8192;
+
+    private final TokenBucket bucket;
+
+    private final int sliceSize;
+
+    private boolean closed;
+
+    /**
+     * Creates a <code>ThrottledOutputStream</code> with default slice size.
+     *
+     * @param delegate output stream to be throttled
+     * @param bucket token bucket controlling the rate
+     */
+    public ThrottledOutputStream( final OutputStream delegate, final TokenBucket bucket ) {
+        this( delegate, bucket, DEFAULT_SLICE_SIZE );
+    }
+
+    /**
+     * Creates a <code>ThrottledOutputStream</code>.
+     *
+     * @param delegate output stream to be throttled
+     * @param bucket token bucket controlling the rate
+     * @param sliceSize maximum number of bytes written to wrapped stream at once
+     */
+    public ThrottledOutputStream( final OutputStream delegate, final TokenBucket bucket, final int sliceSize ) {
+        // ensure preconditions
+        super( delegate );
+        if ( bucket == null ) {
+            throw new IllegalArgumentException( "TokenBucket cannot be null" );
+        }
+        if ( sliceSize <= 0 ) {
+            throw new IllegalArgumentException( "Slice size must be positive" );
+        }
+        // initialize
+        this.bucket = bucket;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        bucket.acquire( 1 );
+        super.write( data );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        // method implementation
+        int position = offset;
+        final int end = offset + length;
+        while ( position < end ) {
+            final int count = Math.min( sliceSize, end - position );
+            bucket.acquire( count );
+            super.write( data, position, count );
+            position += count;
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#flush()} javadoc.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        super.flush();
+    }
+
+    /**
+     * See {@link java.io.OutputStream#close()} javadoc.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            super.close();
+        }
+    }
+
+    /**
+     * Returns token bucket controlling the rate of this stream.
+     */
+    public TokenBucket getBucket() {
+        return bucket;
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>
+ * A <code>TokenBucket</code> limits the rate (bytes per second) of the streams sharing it.
+ * Every byte costs a fixed amount of <code>System.nanoTime()</code> time. Callers reserve
+ * their cost with a single CAS on the bucket state and then sleep until the reserved time slot
+ * is reached. Up to <B>burst</B> bytes may pass without waiting after the bucket has been idle.
+ * </P>
+ * <P>
+ * The rate and the burst size can be changed at any time via {@link #configure(long, long)}.
+ * New settings apply to reservations made after the change.
+ * </P>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    // saturation bound keeping slot arithmetic far from overflow
+    private static final long MAX_NANOS = Long.MAX_VALUE >> 2;
+
+    private final AtomicLong nextFreeSlot;
+
+    private volatile Settings settings;
+
+    /**
+     * Creates a <code>TokenBucket</code> with burst size equal to one second of traffic.
+     *
+     * @param bytesPerSecond maximum sustained rate
+     */
+    public TokenBucket( final long bytesPerSecond ) {
+        this( bytesPerSecond, bytesPerSecond );
+    }
+
+    /**
+     * Creates a <code>TokenBucket</code>.
+     *
+     * @param bytesPerSecond maximum sustained rate
+     * @param burst maximum number of bytes allowed to pass without waiting
+     */
+    public TokenBucket( final long bytesPerSecond, final long burst ) {
+        settings = new Settings( bytesPerSecond, burst );
+        nextFreeSlot = new AtomicLong( System.nanoTime() );
+    }
+
+    /**
+     * Changes the rate and the burst size of this bucket.
+     *
+     * @param bytesPerSecond maximum sustained rate
+     * @param burst maximum number of bytes allowed to pass without waiting
+     */
+    public void configure( final long bytesPerSecond, final long burst ) {
+        settings = new Settings( bytesPerSecond, burst );
+    }
+
+    /**
+     * Returns maximum sustained rate in bytes per second.
+     */
+    public long getBytesPerSecond() {
+        return settings.bytesPerSecond;
+    }
+
+    /**
+     * Returns maximum number of bytes allowed to pass without waiting.
+     */
+    public long getBurst() {
+        return settings.burst;
+    }
+
+    /**
+     * Reserves <B>count</B> bytes and blocks until the reservation is due.
+     *
+     * @param count number of bytes to pass through the bucket
+     * @throws InterruptedIOException if current thread have been interrupted while waiting
+     */
+    public void acquire( final int count ) throws IOException {
+        // ensure preconditions
+        if ( count < 0 ) {
+            throw new IllegalArgumentException( "count must be positive" );
+        }
+        // method implementation
+        if ( count == 0 ) {
+            return;
+        }
+        final long deadline = reserve( count );
+        long delay = deadline - System.nanoTime();
+        while ( delay > 0 ) {
+            LockSupport.parkNanos( this, delay );
+            if ( Thread.interrupted() ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for token bucket" );
+            }
+            delay = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Reserves <B>count</B> bytes without blocking.
+     *
+     * @param count number of bytes to pass through the bucket
+     * @return <code>System.nanoTime()</code> based time the reserved bytes may pass at
+     */
+    long reserve( final int count ) {
+        final Settings current = settings;
+        final long cost = current.cost( count );
+        final long burstNanos = current.burstNanos;
+        long oldSlot;
+        long newSlot;
+        long now;
+        do {
+            now = System.nanoTime();
+            oldSlot = nextFreeSlot.get();
+            // idle time accumulates up to burst
+            newSlot = Math.max( oldSlot, now - burstNanos ) + cost;
+        } while ( !nextFreeSlot.compareAndSet( oldSlot, newSlot ) );
+        return newSlot;
+    }
+
+    private static final class Settings {
+
+        private final long bytesPerSecond;
+
+        private final long burst;
+
+        private final long burstNanos;
+
+        private Settings( final long bytesPerSecond, final long burst ) {
+            if ( bytesPerSecond <= 0 ) {
+                throw new IllegalArgumentException( "Rate must be positive" );
+            }
+            if ( burst < 0 ) {
+                throw new IllegalArgumentException( "Burst cannot be negative" );
+            }
+            this.bytesPerSecond = bytesPerSecond;
+            this.burst = burst;
+            burstNanos = cost( burst );
+        }
+
+        private long cost( final long count ) {
+            if ( count <= Long.MAX_VALUE / NANOS_PER_SECOND ) {
+                return Math.min( count * NANOS_PER_SECOND / bytesPerSecond, MAX_NANOS );
+            }
+            final long seconds = count / bytesPerSecond;
+            if ( seconds >= MAX_NANOS / NANOS_PER_SECOND ) {
+                return MAX_NANOS;
+            }
+            final double fraction = ( double ) ( count % bytesPerSecond ) / bytesPerSecond;
+            return Math.min( seconds * NANOS_PER_SECOND + ( long ) ( fraction * NANOS_PER_SECOND ), MAX_NANOS );
+        }
+
+    }
+
+}
@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <P>
+ * An <code>UnsynchronizedPrintStream</code> is a <code>PrintStream</code> that never enters a monitor.
+ * It encodes text with its own encoder and writes the bytes directly to the wrapped
+ * <code>OutputStream</code>. Unlike <code>java.io.PrintStream</code> subclasses, whose inherited
+ * methods synchronize on the stream, it serializes callers with a <code>ReentrantLock</code>,
+ * so a virtual thread blocked in the wrapped stream parks instead of pinning its carrier thread.
+ * In single owner mode it does no locking at all.
+ * </P>
+ * <P>
+ * To print to several targets wrap a {@link TeeOutputStream} instead of using {@link TeePrintStream}.
+ * Like <code>PrintStream</code> it never throws <code>IOException</code>, see {@link #checkError()}.
+ * </P>
+ * <p>
+ * This class is thread safe unless created in single owner mode.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class UnsynchronizedPrintStream extends PrintStream {
+
+    private static final int CHAR_BUFFER_SIZE = 1024;
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+
+    private static final int NUMBER_BUFFER_SIZE = 32;
+
+    private static final String NULL = "null";
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final OutputStream out;
+
+    private final ReentrantLock lock;
+
+    private final boolean autoFlush;
+
+    private final CharsetEncoder encoder;
+
+    private final char[] charArray = new char[ CHAR_BUFFER_SIZE ];
+
+    private final CharBuffer chars = CharBuffer.wrap( charArray );
+
+    private final ByteBuffer bytes = ByteBuffer.allocate( BYTE_BUFFER_SIZE );
+
+    private final StringBuilder numberBuffer = new StringBuilder( NUMBER_BUFFER_SIZE );
+
+    private StringBuilder formatBuffer;
+
+    private Formatter formatter;
+
+    private boolean newLine;
+
+    private boolean closed;
+
+    /**
+     * Creates a thread safe <code>UnsynchronizedPrintStream</code> using default charset and no auto flushing.
+     *
+     * @param out output stream to print to
+     */
+    public UnsynchronizedPrintStream( final OutputStream out ) {
+        this( out, Charset.defaultCharset(), false, false );
+    }
+
+    /**
+     * Creates an <code>UnsynchronizedPrintStream</code>.
+     *
+     * @param out output stream to print to
+     * @param charset charset to encode text with
+     * @param autoFlush whether to flush the output stream after a line has been printed or bytes written
+     * @param singleOwner whether only one thread at a time uses the stream, if <B>true</B> no locking is done
+     */
+    public UnsynchronizedPrintStream( final OutputStream out, final Charset charset, final boolean autoFlush, final boolean singleOwner ) {
+        super( NullOutputStream.getInstance() );
+        // ensure preconditions
+        if ( out == null ) {
+            throw new IllegalArgumentException( "OutputStream cannot be null" );
+        }
+        if ( charset == null ) {
+            throw new IllegalArgumentException( "Charset cannot be null" );
+        }
+        // initialize
+        this.out = out;
+        this.autoFlush = autoFlush;
+        lock = singleOwner ? null : new ReentrantLock();
+        encoder = charset.newEncoder().onMalformedInput( CodingErrorAction.REPLACE ).onUnmappableCharacter( CodingErrorAction.REPLACE );
+    }
+
+    /**
+     * Flushes the wrapped output stream.
+     */
+    @Override
+    public void flush() {
+        lock();
+        try {
+            ensureOpen();
+            out.flush();
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Closes the wrapped output stream.
+     */
+    @Override
+    public void close() {
+        lock();
+        try {
+            if ( !closed ) {
+                closed = true;
+                out.close();
+            }
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) {
+        lock();
+        try {
+            ensureOpen();
+            out.write( data );
+            if ( autoFlush && data == '\n' ) {
+                out.flush();
+            }
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) {
+        lock();
+        try {
+            ensureOpen();
+            out.write( data, offset, length );
+            if ( autoFlush ) {
+                out.flush();
+            }
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) {
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(boolean)} javadoc.
+     */
+    @Override
+    public void print( final boolean data ) {
+        print( String.valueOf( data ), false );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(char)} javadoc.
+     */
+    @Override
+    public void print( final char data ) {
+        lock();
+        try {
+            ensureOpen();
+            putChar( data );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(int)} javadoc.
+     */
+    @Override
+    public void print( final int data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(long)} javadoc.
+     */
+    @Override
+    public void print( final long data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(float)} javadoc.
+     */
+    @Override
+    public void print( final float data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(double)} javadoc.
+     */
+    @Override
+    public void print( final double data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(char[])} javadoc.
+     */
+    @Override
+    public void print( final char[] data ) {
+        print( data, false );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(String)} javadoc.
+     */
+    @Override
+    public void print( final String data ) {
+        print( data != null ? data : NULL, false );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#print(Object)} javadoc.
+     */
+    @Override
+    public void print( final Object data ) {
+        print( String.valueOf( data ), false );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println()} javadoc.
+     */
+    @Override
+    public void println() {
+        print( "", true );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(boolean)} javadoc.
+     */
+    @Override
+    public void println( final boolean data ) {
+        print( String.valueOf( data ), true );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(char)} javadoc.
+     */
+    @Override
+    public void println( final char data ) {
+        lock();
+        try {
+            ensureOpen();
+            putChar( data );
+            complete( true );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(int)} javadoc.
+     */
+    @Override
+    public void println( final int data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( true );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(long)} javadoc.
+     */
+    @Override
+    public void println( final long data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( true );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(float)} javadoc.
+     */
+    @Override
+    public void println( final float data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( true );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(double)} javadoc.
+     */
+    @Override
+    public void println( final double data ) {
+        lock();
+        try {
+            ensureOpen();
+            numberBuffer.setLength( 0 );
+            numberBuffer.append( data );
+            putChars( numberBuffer, 0, numberBuffer.length() );
+            complete( true );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(char[])} javadoc.
+     */
+    @Override
+    public void println( final char[] data ) {
+        print( data, true );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(String)} javadoc.
+     */
+    @Override
+    public void println( final String data ) {
+        print( data != null ? data : NULL, true );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#println(Object)} javadoc.
+     */
+    @Override
+    public void println( final Object data ) {
+        print( String.valueOf( data ), true );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#printf(String, Object...)} javadoc.
+     */
+    @Override
+    public PrintStream printf( final String format, final Object ... args ) {
+        return format( Locale.getDefault( Locale.Category.FORMAT ), format, args );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#printf(Locale, String, Object...)} javadoc.
+     */
+    @Override
+    public PrintStream printf( final Locale locale, final String format, final Object ... args ) {
+        return format( locale, format, args );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#format(String, Object...)} javadoc.
+     */
+    @Override
+    public PrintStream format( final String format, final Object ... args ) {
+        return format( Locale.getDefault( Locale.Category.FORMAT ), format, args );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#format(Locale, String, Object...)} javadoc.
+     */
+    @Override
+    public PrintStream format( final Locale locale, final String format, final Object ... args ) {
+        lock();
+        try {
+            ensureOpen();
+            if ( formatter == null ) {
+                formatBuffer = new StringBuilder();
+                formatter = new Formatter( formatBuffer );
+            }
+            formatBuffer.setLength( 0 );
+            formatter.format( locale, format, args );
+            putChars( formatBuffer, 0, formatBuffer.length() );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+        return this;
+    }
+
+    /**
+     * See {@link java.io.PrintStream#append(CharSequence)} javadoc.
+     */
+    @Override
+    public PrintStream append( final CharSequence data ) {
+        final CharSequence text = data != null ? data : NULL;
+        return append( text, 0, text.length() );
+    }
+
+    /**
+     * See {@link java.io.PrintStream#append(CharSequence, int, int)} javadoc.
+     */
+    @Override
+    public PrintStream append( final CharSequence data, final int start, final int end ) {
+        final CharSequence text = data != null ? data : NULL;
+        if ( start < 0 || start > end || end > text.length() ) {
+            throw new IndexOutOfBoundsException( "start " + start + ", end " + end + ", length " + text.length() );
+        }
+        lock();
+        try {
+            ensureOpen();
+            putChars( text, start, end );
+            complete( false );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+        return this;
+    }
+
+    /**
+     * See {@link java.io.PrintStream#append(char)} javadoc.
+     */
+    @Override
+    public PrintStream append( final char data ) {
+        print( data );
+        return this;
+    }
+
+    private void print( final String data, final boolean lineEnd ) {
+        lock();
+        try {
+            ensureOpen();
+            putChars( data, 0, data.length() );
+            complete( lineEnd );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    private void print( final char[] data, final boolean lineEnd ) {
+        lock();
+        try {
+            ensureOpen();
+            int offset = 0;
+            while ( offset < data.length ) {
+                if ( !chars.hasRemaining() ) {
+                    encode();
+                }
+                final int count = Math.min( chars.remaining(), data.length - offset );
+                chars.put( data, offset, count );
+                offset += count;
+            }
+            if ( autoFlush ) {
+                for ( int i = 0; i < data.length && !newLine; i++ ) {
+                    newLine = data[ i ] == '\n';
+                }
+            }
+            complete( lineEnd );
+        } catch ( final IOException e ) {
+            handle( e );
+        } finally {
+            unlock();
+        }
+    }
+
+    private void putChar( final char c ) throws IOException {
+        if ( !chars.hasRemaining() ) {
+            encode();
+        }
+        chars.put( c );
+        if ( c == '\n' ) {
+            newLine = true;
+        }
+    }
+
+    private void putChars( final CharSequence data, final int start, final int end ) throws IOException {
+        if ( data instanceof String ) {
+            final String string = ( String ) data;
+            int offset = start;
+            while ( offset < end ) {
+                if ( !chars.hasRemaining() ) {
+                    encode();
+                }
+                final int count = Math.min( chars.remaining(), end - offset );
+                string.getChars( offset, offset + count, charArray, chars.position() );
+                chars.position( chars.position() + count );
+                offset += count;
+            }
+            if ( autoFlush ) {
+                final int index = string.indexOf( '\n', start );
+                newLine |= index >= 0 && index < end;
+            }
+        } else if ( data instanceof StringBuilder ) {
+            final StringBuilder builder = ( StringBuilder ) data;
+            int offset = start;
+            while ( offset < end ) {
+                if ( !chars.hasRemaining() ) {
+                    encode();
+                }
+                final int count = Math.min( chars.remaining(), end - offset );
+                builder.getChars( offset, offset + count, charArray, chars.position() );
+                chars.position( chars.position() + count );
+                offset += count;
+            }
+            if ( autoFlush ) {
+                final int index = builder.indexOf( "\n", start );
+                newLine |= index >= 0 && index < end;
+            }
+        } else {
+            for ( int i = start; i < end; i++ ) {
+                putChar( data.charAt( i ) );
+            }
+        }
+    }
+
+    /**
+     * Encodes buffered characters, leaving incomplete surrogate pair in the buffer.
+     */
+    private void encode() throws IOException {
+        chars.flip();
+        while ( encoder.encode( chars, bytes, false ).isOverflow() ) {
+            drain();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        if ( bytes.position() > 0 ) {
+            out.write( bytes.array(), 0, bytes.position() );
+            bytes.clear();
+        }
+    }
+
+    /**
+     * Finishes print call, optionally terminating the line, and passes encoded bytes to the wrapped stream.
+     */
+    private void complete( final boolean lineEnd ) throws IOException {
+        if ( lineEnd ) {
+            putChars( LINE_SEPARATOR, 0, LINE_SEPARATOR.length() );
+        }
+        encode();
+        drain();
+        if ( autoFlush && ( lineEnd || newLine ) ) {
+            out.flush();
+        }
+        newLine = false;
+    }
+
+    private void handle( final IOException e ) {
+        // drop partially printed data
+        chars.clear();
+        bytes.clear();
+        encoder.reset();
+        newLine = false;
+        if ( e instanceof InterruptedIOException ) {
+            Thread.currentThread().interrupt();
+        }
+        setError();
+    }
+
+    private void ensureOpen() throws IOException {
+        if ( closed ) {
+            throw new IOException( "Stream is closed" );
+        }
+    }
+
+    private void lock() {
+        if ( lock != null ) {
+            lock.lock();
+        }
+    }
+
+    private void unlock() {
+        if ( lock != null ) {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A <code>WaitStrategy</code> specifies how a thread waits for a condition
+ * that will be satisfied by another thread shortly.
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public enum WaitStrategy {
+
+    /**
+     * Busy spins. Lowest latency, burns one core while waiting.
+     * Suitable only if every waiting thread has its own core.
+     */
+    SPIN {
+        @Override
+        void idle() {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * Yields the processor to other threads between the checks.
+     */
+    YIELD {
+        @Override
+        void idle() {
+            Thread.yield();
+        }
+    },
+
+    /**
+     * Parks the thread between the checks. Lowest CPU usage, highest latency.
+     */
+    PARK {
+        @Override
+        void idle() {
+            LockSupport.parkNanos( PARK_NANOS );
+        }
+    };
+
+    static final long PARK_NANOS = 50000L;
+
+    abstract void idle();
+
+}
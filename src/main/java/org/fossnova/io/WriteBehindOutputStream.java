@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <P>
+ * A <code>WriteBehindOutputStream</code> writes to wrapped stream in the background.
+ * The caller fills the current buffer while background task writes previously filled
+ * buffers to wrapped stream, so the caller is blocked only if all buffers are waiting to be written.
+ * </P>
+ * <P>
+ * The background task is submitted to the <code>Executor</code> passed to the constructor
+ * (e.g. one creating virtual threads) or runs in its own daemon thread if no executor is specified.
+ * The {@link #flushAsync()} method returns a future completed once all data written before the call
+ * have been written and flushed to wrapped stream. Errors of wrapped stream are reported by the futures
+ * and by subsequent <B>write</B>, <B>flush</B> and <B>close</B> calls. The {@link #close()} method
+ * writes all buffered data, stops the background task and closes wrapped stream.
+ * </P>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class WriteBehindOutputStream extends DelegatingOutputStream {
+
+    private static final int DEFAULT_BUFFER_COUNT = 2;
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private static final long POLL_MILLIS = 100L;
+
+    private static final Chunk STOP = new Chunk( 0 );
+
+    private final BlockingQueue<Chunk> free;
+
+    private final BlockingQueue<Chunk> filled;
+
+    private final CountDownLatch finished = new CountDownLatch( 1 );
+
+    private Chunk current;
+
+    private boolean closed;
+
+    private volatile IOException failure;
+
+    /**
+     * Creates a <code>WriteBehindOutputStream</code> with two 64KB buffers written by its own daemon thread.
+     *
+     * @param delegate output stream to be written in the background
+     */
+    public WriteBehindOutputStream( final OutputStream delegate ) {
+        this( delegate, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE, null );
+    }
+
+    /**
+     * Creates a <code>WriteBehindOutputStream</code>.
+     *
+     * @param delegate output stream to be written in the background
+     * @param bufferCount number of buffers, at least two
+     * @param bufferSize size of every buffer
+     * @param executor executor running background task or <code>null</code> to use own daemon thread
+     */
+    public WriteBehindOutputStream( final OutputStream delegate, final int bufferCount, final int bufferSize, final Executor executor ) {
+        // ensure preconditions
+        super( delegate );
+        if ( bufferCount < 2 ) {
+            throw new IllegalArgumentException( "Buffer count must be at least two" );
+        }
+        if ( bufferSize <= 0 ) {
+            throw new IllegalArgumentException( "Buffer size must be positive" );
+        }
+        // initialize
+        free = new ArrayBlockingQueue<Chunk>( bufferCount );
+        filled = new LinkedBlockingQueue<Chunk>();
+        current = new Chunk( bufferSize );
+        for ( int i = 1; i < bufferCount; i++ ) {
+            free.add( new Chunk( bufferSize ) );
+        }
+        final Runnable task = new Writer();
+        if ( executor != null ) {
+            executor.execute( task );
+        } else {
+            final Thread thread = new Thread( task, "WriteBehindOutputStream writer" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(int)} javadoc.
+     */
+    @Override
+    public void write( final int data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        checkFailure();
+        // method implementation
+        if ( current == null || current.length == current.buffer.length ) {
+            submit();
+        }
+        current.buffer[ current.length++ ] = ( byte ) data;
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[])} javadoc.
+     */
+    @Override
+    public void write( final byte[] data ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        // the implementation
+        write( data, 0, data.length );
+    }
+
+    /**
+     * See {@link java.io.OutputStream#write(byte[], int, int)} javadoc.
+     */
+    @Override
+    public void write( final byte[] data, final int offset, final int length ) throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        if ( data == null ) {
+            throw new IllegalArgumentException( "buffer cannot be null" );
+        }
+        if ( offset < 0 ) {
+            throw new IllegalArgumentException( "offset must be positive" );
+        }
+        if ( length < 0 ) {
+            throw new IllegalArgumentException( "length must be positive" );
+        }
+        if ( length > ( data.length - offset ) ) {
+            throw new IllegalArgumentException( "length must be less or equal to free space available in the buffer" );
+        }
+        checkFailure();
+        // method implementation
+        int position = offset;
+        final int end = offset + length;
+        while ( position < end ) {
+            if ( current == null || current.length == current.buffer.length ) {
+                submit();
+            }
+            final int count = Math.min( end - position, current.buffer.length - current.length );
+            System.arraycopy( data, position, current.buffer, current.length, count );
+            current.length += count;
+            position += count;
+        }
+    }
+
+    /**
+     * Hands all buffered data over to the background task without waiting. The free buffer
+     * for subsequent writes is taken by the next write, so this method never blocks.
+     *
+     * @return future completed once all data written so far have been written and flushed to wrapped stream
+     * @throws IOException if background task failed
+     */
+    public CompletableFuture<Void> flushAsync() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        checkFailure();
+        // method implementation
+        final CompletableFuture<Void> retVal = new CompletableFuture<Void>();
+        // without buffered data an empty marker carries the flush request
+        final Chunk chunk = current != null ? current : new Chunk( 0 );
+        chunk.flush = retVal;
+        filled.add( chunk );
+        current = null;
+        return retVal;
+    }
+
+    /**
+     * Blocks until all data written so far have been written and flushed to wrapped stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        // ensure preconditions
+        ensureOpen();
+        // method implementation
+        try {
+            flushAsync().get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for flush" );
+        } catch ( final ExecutionException e ) {
+            throw new IOException( "Write behind failed", e.getCause() );
+        }
+    }
+
+    /**
+     * Writes all buffered data, stops background task and closes wrapped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( !closed ) {
+            closed = true;
+            try {
+                if ( current != null ) {
+                    filled.add( current );
+                }
+                filled.add( STOP );
+                current = null;
+                finished.await();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for write behind task" );
+            } finally {
+                super.close();
+            }
+            checkFailure();
+        }
+    }
+
+    private void submit() throws IOException {
+        if ( current != null ) {
+            filled.add( current );
+            current = null;
+        }
+        try {
+            Chunk next = free.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            while ( next == null ) {
+                // background task may have terminated
+                checkFailure();
+                next = free.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            }
+            current = next;
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for free buffer" );
+        }
+        current.length = 0;
+        current.flush = null;
+    }
+
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if ( e != null ) {
+            throw new IOException( "Write behind failed", e );
+        }
+    }
+
+    private void ensureOpen() {
+        if ( closed ) {
+            throw new IllegalStateException( "Stream is closed" );
+        }
+    }
+
+    private static final class Chunk {
+
+        private final byte[] buffer;
+
+        private int length;
+
+        private CompletableFuture<Void> flush;
+
+        private Chunk( final int size ) {
+            buffer = new byte[ size ];
+        }
+
+    }
+
+    private final class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                Chunk chunk = filled.take();
+                while ( chunk != STOP ) {
+                    process( chunk );
+                    if ( chunk.buffer.length > 0 ) {
+                        free.add( chunk );
+                    }
+                    chunk = filled.take();
+                }
+                if ( failure == null ) {
+                    getDelegate().flush();
+                }
+            } catch ( final IOException e ) {
+                failure = e;
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException( "Write behind task interrupted" );
+            } catch ( final Throwable t ) {
+                failure = new IOException( "Write behind task failed", t );
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        private void process( final Chunk chunk ) {
+            if ( failure == null ) {
+                try {
+                    getDelegate().write( chunk.buffer, 0, chunk.length );
+                    if ( chunk.flush != null ) {
+                        getDelegate().flush();
+                    }
+                } catch ( final IOException e ) {
+                    failure = e;
+                } catch ( final Throwable t ) {
+                    // unchecked failure must not kill the task, writers would wait for free buffers forever
+                    failure = new IOException( "Write behind task failed", t );
+                }
+            }
+            if ( chunk.flush != null ) {
+                if ( failure == null ) {
+                    chunk.flush.complete( null );
+                } else {
+                    chunk.flush.completeExceptionally( failure );
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012-2020, FOSS Nova Software Foundation (FNSF),
+ * and individual contributors as indicated by the @author tags.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.fossnova.io;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * <P>
+ * Allocation regression tests of the paths expected to be garbage free. Every path is called
+ * millions of times on the test thread and the bytes allocated by that thread are measured
+ * with <code>com.sun.management.ThreadMXBean</code>. A path that starts allocating even one
+ * small object per call exceeds the tolerance by orders of magnitude.
+ * </P>
+ *
+ * @author <a href="mailto:opalka dot richard at gmail dot com">Richard Opalka</a>
+ */
+public final class AllocationTest {
+
+    private static final int WARM_UP_CALLS = 200000;
+
+    private static final int MEASURED_CALLS = 2000000;
+
+    private static final long TOLERANCE = 65536L;
+
+    private static final int CHUNK = 8;
+
+    private static final String TEXT = "garbage free text";
+
+    private static final String FORMAT = "%s=%s %s%n";
+
+    private static ThreadMXBean threads;
+
+    @BeforeClass
+    public static void init() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue( bean instanceof ThreadMXBean );
+        threads = ( ThreadMXBean ) bean;
+        Assume.assumeTrue( threads.isThreadAllocatedMemorySupported() );
+        threads.setThreadAllocatedMemoryEnabled( true );
+    }
+
+    @Test
+    public void boundedWriterWriteStringRegion() throws IOException {
+        final BoundedWriter writer = new BoundedWriter( NullWriter.getInstance(), Long.MAX_VALUE );
+        assertGarbageFree( "BoundedWriter.write(String, int, int)", () -> writer.write( TEXT, 2, CHUNK ) );
+    }
+
+    @Test
+    public void boundedWriterWriteChars() throws IOException {
+        final BoundedWriter writer = new BoundedWriter( NullWriter.getInstance(), Long.MAX_VALUE );
+        final char[] data = TEXT.toCharArray();
+        assertGarbageFree( "BoundedWriter.write(char[], int, int)", () -> writer.write( data, 2, CHUNK ) );
+    }
+
+    @Test
+    public void boundedOutputStreamWriteBytes() throws IOException {
+        final BoundedOutputStream stream = new BoundedOutputStream( NullOutputStream.getInstance(), Long.MAX_VALUE );
+        final byte[] data = new byte[ CHUNK ];
+        assertGarbageFree( "BoundedOutputStream.write(byte[], int, int)", () -> stream.write( data, 0, CHUNK ) );
+    }
+
+    @Test
+    public void pushbackReaderDirectCharBuffer() throws IOException {
+        final CharBuffer source = ByteBuffer.allocateDirect( CHUNK * 2 ).asCharBuffer();
+        final CharBuffer target = ByteBuffer.allocateDirect( CHUNK * 2 ).asCharBuffer();
+        assertCharBufferRoundTripGarbageFree( "PushbackReader.read/unread(direct CharBuffer)", source, target );
+    }
+
+    @Test
+    public void pushbackReaderHeapCharBuffer() throws IOException {
+        final CharBuffer source = CharBuffer.allocate( CHUNK );
+        final CharBuffer target = CharBuffer.allocate( CHUNK );
+        assertCharBufferRoundTripGarbageFree( "PushbackReader.read/unread(heap CharBuffer)", source, target );
+    }
+
+    @Test
+    public void pushbackReaderChars() throws IOException {
+        final PushbackReader reader = new PushbackReader( NullReader.getInstance(), CHUNK );
+        final char[] data = new char[ CHUNK ];
+        assertGarbageFree( "PushbackReader.read/unread(char[])", () -> {
+            reader.unread( data );
+            reader.read( data );
+        } );
+    }
+
+    @Test
+    public void pushbackInputStreamBytes() throws IOException {
+        final PushbackInputStream stream = new PushbackInputStream( NullInputStream.getInstance(), CHUNK );
+        final byte[] data = new byte[ CHUNK ];
+        assertGarbageFree( "PushbackInputStream.read/unread(byte[])", () -> {
+            stream.unread( data );
+            stream.read( data );
+        } );
+    }
+
+    @Test
+    public void teePrintStreamPrintfFormatsOnce() throws IOException {
+        // formatting itself allocates, but the message must be formatted once, not once per delegate
+        final PrintStream first = new PrintStream( NullOutputStream.getInstance() );
+        final PrintStream second = new PrintStream( NullOutputStream.getInstance() );
+        final PrintStream third = new PrintStream( NullOutputStream.getInstance() );
+        final TeePrintStream tee = new TeePrintStream( first, second, third );
+        final Object[] args = { "key", "value", TEXT };
+        final long single = measure( () -> first.printf( FORMAT, args ) );
+        final long teed = measure( () -> tee.printf( FORMAT, args ) );
+        Assert.assertTrue( "TeePrintStream.printf allocated " + teed / MEASURED_CALLS + " B/call, formatting for every delegate costs "
+                + single / MEASURED_CALLS * 3 + " B/call", teed < single * 2 );
+    }
+
+    private static void assertCharBufferRoundTripGarbageFree( final String path, final CharBuffer source, final CharBuffer target ) throws IOException {
+        final PushbackReader reader = new PushbackReader( NullReader.getInstance(), CHUNK );
+        source.put( TEXT, 0, CHUNK ).flip();
+        assertGarbageFree( path, () -> {
+            source.rewind();
+            reader.unread( source );
+            target.clear();
+            reader.read( target );
+        } );
+    }
+
+    private static void assertGarbageFree( final String path, final Call call ) throws IOException {
+        final long allocated = measure( call );
+        Assert.assertTrue( path + " allocated " + allocated + " bytes in " + MEASURED_CALLS + " calls", allocated < TOLERANCE );
+    }
+
+    private static long measure( final Call call ) throws IOException {
+        for ( int i = 0; i < WARM_UP_CALLS; i++ ) {
+            call.run();
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long start = threads.getThreadAllocatedBytes( threadId );
+        for ( int i = 0; i < MEASURED_CALLS; i++ ) {
+            call.run();
+        }
+        return threads.getThreadAllocatedBytes( threadId ) - start;
+    }
+
+    private interface Call {
+
+        void run() throws IOException;
+
+    }
+
+}